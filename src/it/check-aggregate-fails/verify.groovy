@@ -0,0 +1,7 @@
+File buildLog = new File( basedir, 'build.log' )
+String log = buildLog.getText()
+
+assert log.contains( new File( basedir, 'module-a/pom.xml' ).getPath() )
+assert log.contains( new File( basedir, 'module-b/pom.xml' ).getPath() )
+assert !log.contains( new File( basedir, 'module-c/pom.xml' ).getPath() )
+assert log.contains( 'Checked 4 POMs, 2 violate the code style.' )
@@ -0,0 +1,17 @@
+def git( String... arguments )
+{
+    def command = [ 'git', '-c', 'user.name=tidy', '-c', 'user.email=tidy@example.org' ] + arguments.toList()
+    def process = new ProcessBuilder( command ).directory( basedir ).redirectErrorStream( true ).start()
+    def output = process.inputStream.text
+    assert process.waitFor() == 0 : output
+}
+
+git( 'init', '--quiet' )
+git( 'add', '.' )
+git( 'commit', '--quiet', '-m', 'Initial commit' )
+
+// the change is neither committed nor staged
+File pomFile = new File( basedir, 'module-b/pom.xml' )
+pomFile.text = pomFile.text.replace( '  <artifactId>module-b</artifactId>\n\n', '  <artifactId>module-b</artifactId>\n' )
+
+return true
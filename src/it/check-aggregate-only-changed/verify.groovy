@@ -0,0 +1,7 @@
+File buildLog = new File( basedir, 'build.log' )
+String log = buildLog.getText()
+
+assert !log.contains( new File( basedir, 'module-a/pom.xml' ).getPath() )
+assert log.contains( new File( basedir, 'module-b/pom.xml' ).getPath() )
+assert log.contains( 'Skipping 3 POMs that have not changed.' )
+assert log.contains( 'Checked 1 POMs, 1 violate the code style.' )
@@ -0,0 +1,11 @@
+File buildLog = new File( basedir, 'build.log' )
+String log = buildLog.getText()
+
+assert log.contains( 'The POM violates the code style at line 2, column 164.' )
+assert log.contains( 'pom.xml:2:164: not tidy (single line project start tag)' )
+
+File reportFile = new File( basedir, 'target/tidy-report.xml' )
+assert reportFile.isFile()
+String report = reportFile.getText( 'UTF-8' )
+assert report.contains( '<checkstyle version="8.0">' )
+assert report.contains( '<error line="2" column="164" severity="error"' )
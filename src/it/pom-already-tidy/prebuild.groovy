@@ -0,0 +1,4 @@
+File pomFile = new File( basedir, 'pom.xml' )
+assert pomFile.setLastModified( 1000000000000L )
+
+return true
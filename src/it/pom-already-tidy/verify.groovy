@@ -0,0 +1,8 @@
+File pomFile = new File( basedir, 'pom.xml' )
+assert pomFile.lastModified() == 1000000000000L
+
+File buildLog = new File( basedir, 'build.log' )
+String log = buildLog.getText()
+
+assert log.contains( 'is already tidy.' )
+assert log.contains( 'Rewrote 0 of 1 POMs.' )
@@ -0,0 +1,122 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * The POMs that are used by the benchmarks. A POM is either one of the POMs of the unit tests or a synthetic POM
+ * that is generated with a given number of dependencies.
+ */
+class BenchmarkPoms {
+    private static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    /**
+     * Returns the POM with the given name. The name is either the name of a directory of the unit test resources
+     * or <code>synthetic-</code> followed by the number of dependencies of a generated POM.
+     *
+     * @param name the name of the POM.
+     * @return the POM.
+     * @throws IOException if the POM cannot be read.
+     */
+    static String getPom(String name) throws IOException {
+        if (name.startsWith(SYNTHETIC_PREFIX)) {
+            return createSyntheticPom(Integer.parseInt(name.substring(SYNTHETIC_PREFIX.length())));
+        }
+        InputStream is = BenchmarkPoms.class.getResourceAsStream(name + "/pom.xml");
+        if (is == null) {
+            throw new IllegalArgumentException("There is no POM with the name " + name + ".");
+        }
+        try {
+            return IOUtil.toString(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * Creates an untidy POM with the given number of dependencies. The POM also has a plugin and a profile for
+     * every tenth dependency. The elements are not in canonical order.
+     */
+    static String createSyntheticPom(int numDependencies) {
+        Random random = new Random(numDependencies);
+        StringBuilder pom = new StringBuilder();
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        pom.append("  <artifactId>synthetic-").append(numDependencies).append("</artifactId>\n");
+        pom.append("  <groupId>org.codehaus.mojo.tidy.benchmark</groupId>\n");
+        pom.append("  <version>1.0-SNAPSHOT</version>\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        pom.append("  <dependencyManagement>\n    <dependencies>\n");
+        for (int i = 0; i < numDependencies; ++i) {
+            appendDependency(pom, "      ", i, random);
+        }
+        pom.append("    </dependencies>\n  </dependencyManagement>\n");
+        pom.append("  <build>\n    <plugins>\n");
+        for (int i = 0; i < numDependencies / 10; ++i) {
+            pom.append("      <plugin>\n");
+            pom.append("        <version>1.").append(i).append("</version>\n");
+            pom.append("        <artifactId>plugin-").append(i).append("</artifactId>\n");
+            pom.append("        <groupId>org.acme</groupId>\n");
+            pom.append("        <configuration>\n");
+            pom.append("          <dependency>not a dependency</dependency>\n");
+            pom.append("        </configuration>\n");
+            pom.append("      </plugin>\n");
+        }
+        pom.append("    </plugins>\n    <finalName>synthetic</finalName>\n  </build>\n");
+        pom.append("  <profiles>\n");
+        for (int i = 0; i < numDependencies / 10; ++i) {
+            pom.append("    <profile>\n      <id>profile-").append(i).append("</id>\n");
+            pom.append("      <dependencies>\n");
+            appendDependency(pom, "        ", i, random);
+            pom.append("      </dependencies>\n    </profile>\n");
+        }
+        pom.append("  </profiles>\n");
+        pom.append("  <description>A synthetic POM for benchmarks.</description>\n");
+        pom.append("</project>\n");
+        return pom.toString();
+    }
+
+    private static void appendDependency(StringBuilder pom, String indent, int i, Random random) {
+        pom.append(indent).append("<dependency>\n");
+        if (random.nextBoolean()) {
+            pom.append(indent).append("  <version>").append(i).append(".0</version>\n");
+            pom.append(indent).append("  <artifactId>artifact-").append(i).append("</artifactId>\n");
+            pom.append(indent).append("  <groupId>org.acme</groupId>\n");
+        } else {
+            pom.append(indent).append("  <groupId>org.acme</groupId>\n");
+            pom.append(indent).append("  <artifactId>artifact-").append(i).append("</artifactId>\n");
+            pom.append(indent).append("  <version>").append(i).append(".0</version>\n");
+        }
+        if (random.nextInt(4) == 0) {
+            pom.append(indent).append("  <exclusions>\n");
+            pom.append(indent).append("    <exclusion>\n");
+            pom.append(indent).append("      <artifactId>excluded</artifactId>\n");
+            pom.append(indent).append("      <groupId>org.acme</groupId>\n");
+            pom.append(indent).append("    </exclusion>\n");
+            pom.append(indent).append("  </exclusions>\n");
+            pom.append(indent).append("  <scope>test</scope>\n");
+        }
+        pom.append(indent).append("</dependency>\n");
+    }
+}
@@ -0,0 +1,74 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of every {@link TidyTask} on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TidyTaskBenchmark {
+    @Param({"EnsureXmlHeader", "EnsureOrderAndIndent", "EnsureSingleLineProjectStartTag", "EnsureTrailingNewLine"})
+    public String taskName;
+
+    @Param({"pom-space-indent", "complete-pom", "pom-with-profiles", "synthetic-1000", "synthetic-10000"})
+    public String pomName;
+
+    private TidyTask task;
+
+    private String pom;
+
+    private Format format;
+
+    @Setup
+    public void createTask() throws IOException, ReflectiveOperationException {
+        task = (TidyTask) Class.forName(TidyTask.class.getPackage().getName() + "." + taskName)
+                .getDeclaredConstructor()
+                .newInstance();
+        pom = BenchmarkPoms.getPom(pomName);
+        format = new FormatIdentifier().identifyFormat(pom);
+    }
+
+    @Benchmark
+    public String tidyPom() throws XMLStreamException {
+        return task.tidyPom(pom, format);
+    }
+}
@@ -0,0 +1,161 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.tidy.task.DecodedPom;
+
+/**
+ * Checks that the <code>pom.xml</code> files of all projects of the reactor are tidy. The POMs are checked in
+ * parallel and all POMs that violate the code style are reported together. Fails the build if
+ * <code>mvn tidy:pom</code> would create a different <code>pom.xml</code> for any of the projects.
+ * <p>
+ * The goal checks the POMs only when it is executed for the top-level project. Bound to a phase in a parent POM, it
+ * is executed for every project of the reactor, but it checks all POMs once.
+ * <p>
+ * The parameter <code>pomFile</code> is not used by this goal.
+ *
+ * @since 1.5.0
+ */
+@Mojo(name = "check-aggregate", defaultPhase = LifecyclePhase.VERIFY, aggregator = true, threadSafe = true)
+public class CheckAggregateMojo extends CheckMojo {
+    /**
+     * The number of threads that check the POMs. Uses as many threads as there are available processors if the
+     * value is not positive.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.threads", defaultValue = "0")
+    private int threads;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (!isTopLevelProject()) {
+            getLog().debug("The POMs are checked by the execution for the top-level project.");
+            return;
+        }
+        try {
+            checkPoms();
+        } catch (MojoExecutionException | MojoFailureException | RuntimeException e) {
+            writeReport(e);
+            throw e;
+        }
+        writeReport(null);
+    }
+
+    private void checkPoms() throws MojoExecutionException, MojoFailureException {
+        try {
+            if (skip) {
+                getLog().info("Tidy is skipped.");
+                return;
+            }
+            Set<File> allPomFiles = getPomFiles();
+            List<File> pomFiles = removeUnchangedPoms(allPomFiles);
+            if (pomFiles.size() < allPomFiles.size()) {
+                getLog().info("Skipping " + (allPomFiles.size() - pomFiles.size()) + " POMs that have not changed.");
+            }
+            if (pomFiles.isEmpty()) {
+                return;
+            }
+            Map<File, Future<?>> results = new LinkedHashMap<>();
+            ExecutorService executor = Executors.newFixedThreadPool(getNumberOfThreads(pomFiles.size()));
+            try {
+                for (File pomFile : pomFiles) {
+                    results.put(pomFile, executor.submit(() -> {
+                        DecodedPom pom = readPom(pomFile);
+                        executeForPom(pomFile, pom.getPom(), pom.getEncoding());
+                        return null;
+                    }));
+                }
+                reportResults(results);
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            reportMetrics(true);
+        }
+    }
+
+    private boolean isTopLevelProject() {
+        return session.getTopLevelProject() == null
+                || project == null
+                || project.equals(session.getTopLevelProject());
+    }
+
+    private Set<File> getPomFiles() {
+        Set<File> pomFiles = new LinkedHashSet<>();
+        for (MavenProject reactorProject : session.getProjects()) {
+            if (reactorProject.getFile() != null) {
+                pomFiles.add(reactorProject.getFile());
+            }
+        }
+        return pomFiles;
+    }
+
+    private int getNumberOfThreads(int numberOfPoms) {
+        int numberOfThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(numberOfThreads, numberOfPoms));
+    }
+
+    private void reportResults(Map<File, Future<?>> results) throws MojoExecutionException, MojoFailureException {
+        List<File> untidyPoms = new ArrayList<>();
+        List<File> failedPoms = new ArrayList<>();
+        for (Map.Entry<File, Future<?>> result : results.entrySet()) {
+            try {
+                result.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while checking the POMs.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof MojoFailureException) {
+                    untidyPoms.add(result.getKey());
+                    getLog().error(result.getKey() + ": " + e.getCause().getMessage());
+                } else {
+                    failedPoms.add(result.getKey());
+                    getLog().error(result.getKey() + ": Failed to check the POM: " + e.getCause().getMessage());
+                }
+            }
+        }
+        getLog().info("Checked " + results.size() + " POMs, " + untidyPoms.size() + " violate the code style.");
+        if (!failedPoms.isEmpty()) {
+            throw new MojoExecutionException("Failed to check " + failedPoms.size() + " POMs: " + failedPoms);
+        } else if (!untidyPoms.isEmpty()) {
+            throw new MojoFailureException("The POMs " + untidyPoms
+                    + " violate the code style. Please format them by running `mvn tidy:pom`.");
+        }
+    }
+}
@@ -19,10 +19,32 @@ package org.codehaus.mojo.tidy;
  * under the License.
  */
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.mojo.tidy.task.PomEncoding;
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.codehaus.mojo.tidy.task.TidyViolation;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.synchronizedMap;
 
 /**
  * Checks that the <code>pom.xml</code> is tidy. Fails the build if <code>mvn tidy:pom</code> would
@@ -30,12 +52,225 @@ import org.apache.maven.plugins.annotations.Mojo;
  */
 @Mojo(name = "check", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
 public class CheckMojo extends TidyMojo {
+    /**
+     * The maximum number of lines of the diff of a violation that are logged.
+     */
+    private static final int MAX_LOGGED_DIFF_LINES = 20;
+
+    /**
+     * The violations of the POMs that have been checked by all executions of a session for each report file. The
+     * executions of the projects of a reactor write to the same report file, which must contain all of their POMs.
+     */
+    private static final Map<MavenSession, Map<File, Map<File, List<TidyViolation>>>> REACTOR_REPORTS =
+            new WeakHashMap<>();
+
+    /**
+     * Set this to 'false' to check every POM even if it has been checked before. Otherwise the POMs that have
+     * already been found tidy by the same build of the plugin with the same configuration are recorded in the
+     * <code>cacheDirectory</code> and are not checked again.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.useCache", defaultValue = "true")
+    private boolean useCache;
+
+    /**
+     * The directory that records the POMs that are known to be tidy.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.cacheDirectory", defaultValue = "${project.build.directory}/tidy-cache")
+    private File cacheDirectory;
+
+    /**
+     * The version of the plugin. It is part of the key of the cache entries.
+     */
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    /**
+     * Set this to 'true' to check only the POMs that have changed according to git. A POM has changed if it differs
+     * between the <code>gitBaseRevision</code> and the working tree, no matter whether the change is committed,
+     * staged or neither, or if it is not tracked by git. The changes are read from the local repository, which
+     * requires the <code>git</code> executable on the path.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.onlyChanged", defaultValue = "false")
+    private boolean onlyChanged;
+
+    /**
+     * The revision that the POMs are compared with if <code>onlyChanged</code> is set. For a branch the merge base
+     * of the branch and <code>HEAD</code> is used, e.g. set it to <code>origin/main</code> for checking the POMs
+     * that are changed by a pull request.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.gitBaseRevision", defaultValue = "HEAD")
+    private String gitBaseRevision;
+
+    /**
+     * The file that the violations of all checked POMs are written to in the XML format of Checkstyle, e.g. for
+     * annotating a pull request on a CI server. No report is written if the parameter is not set.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.reportFile")
+    private File reportFile;
+
+    /**
+     * The violations of every checked POM. A tidy POM has no violations.
+     */
+    private final Map<File, List<TidyViolation>> checkedPoms = synchronizedMap(new TreeMap<>());
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            if (!skip && removeUnchangedPoms(singletonList(getPomFile())).isEmpty()) {
+                getLog().info("The POM " + getPomFile() + " has not changed since " + gitBaseRevision + ".");
+                reportMetrics(false);
+            } else {
+                super.execute();
+            }
+        } catch (MojoExecutionException | MojoFailureException | RuntimeException e) {
+            writeReport(e);
+            throw e;
+        }
+        writeReport(null);
+    }
+
+    /**
+     * Writes the violations of all POMs that have been checked in this session to the report file if it is set.
+     * The report is rewritten by every execution, so that it contains the POMs of all executions that have finished.
+     *
+     * @param failure the exception that fails this execution or <code>null</code>. A failure to write the report is
+     *                added to it as a suppressed exception, so that it does not hide the violations.
+     */
+    protected void writeReport(Throwable failure) throws MojoExecutionException {
+        if (reportFile == null || skip) {
+            return;
+        }
+        try {
+            Map<File, List<TidyViolation>> reportedPoms = getReportedPoms();
+            synchronized (reportedPoms) {
+                reportedPoms.putAll(checkedPoms);
+                CheckstyleReport.write(reportFile, reportedPoms);
+            }
+        } catch (IOException e) {
+            MojoExecutionException reportException =
+                    new MojoExecutionException("Failed to write the report " + reportFile + ": " + e.getMessage(), e);
+            if (failure == null) {
+                throw reportException;
+            }
+            failure.addSuppressed(reportException);
+        }
+    }
+
+    /**
+     * Returns the violations of the POMs that have been checked in this session for the report file.
+     */
+    private Map<File, List<TidyViolation>> getReportedPoms() {
+        if (session == null) {
+            return checkedPoms;
+        }
+        synchronized (REACTOR_REPORTS) {
+            return REACTOR_REPORTS
+                    .computeIfAbsent(session, key -> new HashMap<>())
+                    .computeIfAbsent(reportFile.getAbsoluteFile(), key -> synchronizedMap(new TreeMap<>()));
+        }
+    }
+
+    /**
+     * Returns the POMs that have changed if only changed POMs are checked. Returns all POMs otherwise.
+     */
+    protected List<File> removeUnchangedPoms(Collection<File> pomFiles) throws MojoExecutionException {
+        List<File> changedPomFiles = new ArrayList<>(pomFiles);
+        if (onlyChanged && !changedPomFiles.isEmpty()) {
+            Set<File> changedFiles;
+            try {
+                changedFiles = new GitChanges(changedPomFiles.get(0).getAbsoluteFile().getParentFile())
+                        .findChangedFiles(gitBaseRevision);
+                Iterator<File> iterator = changedPomFiles.iterator();
+                while (iterator.hasNext()) {
+                    if (!changedFiles.contains(iterator.next().getCanonicalFile())) {
+                        iterator.remove();
+                    }
+                }
+            } catch (IOException e) {
+                throw new MojoExecutionException("Failed to determine the changed POMs: " + e.getMessage(), e);
+            }
+        }
+        return changedPomFiles;
+    }
+
     @Override
-    protected void executeForPom(String pom) throws MojoExecutionException, MojoFailureException {
-        String tidyPom = tidy(pom);
-        if (!pom.equals(tidyPom)) {
-            throw new MojoFailureException(
-                    "The POM violates the code style. Please format it by running `mvn tidy:pom`.");
+    protected void executeForPom(File pomFile, String pom, PomEncoding encoding)
+            throws MojoExecutionException, MojoFailureException {
+        String pluginBuild = useCache ? getPluginBuild() : null;
+        TidyCache cache = pluginBuild == null
+                ? null
+                : new TidyCache(cacheDirectory, pluginBuild + "\n" + getConfigurationFingerprint());
+        if (cache != null && cache.isTidy(pom)) {
+            getLog().debug("The POM " + pomFile + " is known to be tidy.");
+            checkedPoms.put(pomFile, emptyList());
+            return;
+        }
+        int difference = findFirstDifference(pom);
+        if (difference != -1) {
+            List<TidyViolation> violations = findViolations(pom, encoding);
+            for (TidyViolation violation : violations) {
+                getLog().error(describe(pomFile, violation));
+            }
+            checkedPoms.put(pomFile, violations);
+            throw new MojoFailureException("The POM violates the code style at "
+                    + PomTidy.describePosition(pom, difference) + ". Please format it by running `mvn tidy:pom`.");
+        }
+        checkedPoms.put(pomFile, emptyList());
+        if (cache != null) {
+            try {
+                cache.markTidy(pom);
+            } catch (IOException e) {
+                getLog().warn("Failed to record the tidy POM " + pomFile + " in the cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns an identifier of the build of the plugin for the keys of the cache. A SNAPSHOT version is rebuilt with
+     * changed code, so it is identified by the time and the size of the plugin JAR too.
+     *
+     * @return the identifier or <code>null</code> if the build cannot be identified and the cache must not be used.
+     */
+    private String getPluginBuild() {
+        if (pluginVersion == null || !pluginVersion.endsWith("-SNAPSHOT")) {
+            return pluginVersion;
+        }
+        try {
+            File pluginFile = new File(CheckMojo.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (pluginFile.isFile()) {
+                return pluginVersion + " " + pluginFile.lastModified() + " " + pluginFile.length();
+            }
+        } catch (URISyntaxException | RuntimeException e) {
+            getLog().debug("Failed to identify the plugin JAR: " + e);
+        }
+        getLog().debug("The cache is not used, because the build of the plugin " + pluginVersion + " is unknown.");
+        return null;
+    }
+
+    /**
+     * Describes a violation by its position, its rule and the diff that fixes it. Long diffs are truncated.
+     */
+    private static String describe(File pomFile, TidyViolation violation) {
+        StringBuilder description = new StringBuilder();
+        description.append(pomFile).append(':').append(violation.getLine()).append(':');
+        description.append(violation.getColumn()).append(": not tidy (").append(violation.getRule()).append(')');
+        String[] lines = violation.getDiff().split("\n");
+        for (int i = 0; i < lines.length && i < MAX_LOGGED_DIFF_LINES; ++i) {
+            description.append('\n').append(lines[i]);
+        }
+        if (lines.length > MAX_LOGGED_DIFF_LINES) {
+            description.append("\n... ").append(lines.length - MAX_LOGGED_DIFF_LINES).append(" more lines");
         }
+        return description.toString();
     }
 }
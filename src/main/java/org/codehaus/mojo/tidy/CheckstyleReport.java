@@ -0,0 +1,104 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.mojo.tidy.task.TidyViolation;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A report of the violations of POMs in the XML format of Checkstyle. Most CI servers and code review tools can
+ * read this format. Every POM has a <code>file</code> element, a tidy POM has no <code>error</code> elements.
+ */
+class CheckstyleReport {
+    private CheckstyleReport() {}
+
+    /**
+     * Writes a report.
+     *
+     * @param reportFile the file of the report. Its directory is created if necessary.
+     * @param violations the violations of every POM.
+     * @throws IOException if the report cannot be written.
+     */
+    static void write(File reportFile, Map<File, List<TidyViolation>> violations) throws IOException {
+        File directory = reportFile.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<checkstyle version=\"8.0\">\n");
+            for (Map.Entry<File, List<TidyViolation>> pom : violations.entrySet()) {
+                writer.write("  <file name=\"" + escape(pom.getKey().getPath()) + "\">\n");
+                for (TidyViolation violation : pom.getValue()) {
+                    writer.write("    <error line=\"" + violation.getLine() + "\" column=\"" + violation.getColumn()
+                            + "\" severity=\"error\" message=\""
+                            + escape("The POM is not tidy (" + violation.getRule() + "). Please format it by running"
+                                    + " `mvn tidy:pom`.\n" + violation.getDiff())
+                            + "\" source=\"tidy-maven-plugin\"/>\n");
+                }
+                writer.write("  </file>\n");
+            }
+            writer.write("</checkstyle>\n");
+        }
+    }
+
+    /**
+     * Escapes a value of an attribute. Line breaks and tabs are escaped, too, because a parser normalizes them to
+     * spaces otherwise.
+     */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    escaped.append("&amp;");
+                    break;
+                case '<':
+                    escaped.append("&lt;");
+                    break;
+                case '>':
+                    escaped.append("&gt;");
+                    break;
+                case '"':
+                    escaped.append("&quot;");
+                    break;
+                case '\n':
+                    escaped.append("&#10;");
+                    break;
+                case '\r':
+                    escaped.append("&#13;");
+                    break;
+                case '\t':
+                    escaped.append("&#9;");
+                    break;
+                default:
+                    escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
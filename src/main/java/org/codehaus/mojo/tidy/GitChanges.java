@@ -0,0 +1,97 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.CommandLineUtils.StringStreamConsumer;
+import org.codehaus.plexus.util.cli.Commandline;
+
+/**
+ * Determines the files of a local git repository that have changed since a base revision. The changes are read
+ * from the local repository by running the <code>git</code> executable, the network is never accessed. A file has
+ * changed if it differs between the merge base of the base revision and <code>HEAD</code> and the working tree,
+ * no matter whether the change is committed, staged or not, or if it is not tracked by git at all.
+ */
+class GitChanges {
+    private final File workingDirectory;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param workingDirectory a directory inside the working tree of the repository.
+     */
+    GitChanges(File workingDirectory) {
+        this.workingDirectory = workingDirectory;
+    }
+
+    /**
+     * Returns the changed files.
+     *
+     * @param baseRevision the revision that the working tree is compared with, e.g. <code>HEAD</code> or
+     *                     <code>origin/main</code>.
+     * @return the canonical files that have changed.
+     * @throws IOException if git fails.
+     */
+    Set<File> findChangedFiles(String baseRevision) throws IOException {
+        File topLevel = new File(git("rev-parse", "--show-toplevel").trim());
+        String mergeBase = git("merge-base", baseRevision, "HEAD").trim();
+        Set<File> changedFiles = new HashSet<>();
+        addFiles(changedFiles, topLevel, git("diff", "--name-only", "--no-renames", "-z", mergeBase, "--"));
+        addFiles(
+                changedFiles,
+                topLevel,
+                git("ls-files", "--others", "--exclude-standard", "--full-name", "-z", "--", ":/"));
+        return changedFiles;
+    }
+
+    private void addFiles(Set<File> files, File topLevel, String paths) throws IOException {
+        // the consumer of the output appends a line separator after the last path
+        for (String path : paths.split("\0")) {
+            if (!path.trim().isEmpty()) {
+                files.add(new File(topLevel, path).getCanonicalFile());
+            }
+        }
+    }
+
+    private String git(String... arguments) throws IOException {
+        Commandline commandline = new Commandline();
+        commandline.setExecutable("git");
+        commandline.setWorkingDirectory(workingDirectory);
+        commandline.addArguments(arguments);
+        StringStreamConsumer output = new StringStreamConsumer();
+        StringStreamConsumer error = new StringStreamConsumer();
+        int exitCode;
+        try {
+            exitCode = CommandLineUtils.executeCommandLine(commandline, output, error);
+        } catch (CommandLineException e) {
+            throw new IOException("Failed to run git: " + e.getMessage(), e);
+        }
+        if (exitCode != 0) {
+            throw new IOException("git " + String.join(" ", arguments) + " failed: " + error.getOutput().trim());
+        }
+        return output.getOutput();
+    }
+}
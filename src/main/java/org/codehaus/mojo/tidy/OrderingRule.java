@@ -0,0 +1,55 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A rule for the order of the elements of a POM. The rule sorts the children of the elements that match the scope.
+ *
+ * @since 1.5.0
+ */
+public class OrderingRule {
+    /**
+     * The path of the elements whose children are sorted, e.g. <code>/project/build</code>. A scope that does not
+     * start with a slash matches the end of the path, e.g. <code>execution</code>.
+     */
+    private String scope;
+
+    /**
+     * The order of the children, e.g. <code>id, phase | goals | inherited, configuration</code>. A <code>|</code>
+     * separates groups of children and an empty line is put between children of different groups.
+     */
+    private String order;
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+}
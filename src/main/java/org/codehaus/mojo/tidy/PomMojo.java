@@ -19,26 +19,87 @@ package org.codehaus.mojo.tidy;
  * under the License.
  */
 
+import java.io.File;
 import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
-
-import static org.codehaus.plexus.util.FileUtils.fileWrite;
+import org.codehaus.mojo.tidy.task.PomEncoding;
+import org.codehaus.mojo.tidy.task.TemporaryPomFile;
 
 /**
- * Tidy up the <code>pom.xml</code> into the canonical order.
+ * Tidy up the <code>pom.xml</code> into the canonical order. A POM that is already tidy is not written, so that
+ * its timestamp does not change.
  */
 @Mojo(name = "pom")
 public class PomMojo extends TidyMojo {
+    private static final Map<MavenSession, RewriteStatistics> STATISTICS = new WeakHashMap<>();
+
+    private boolean rewritten;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        rewritten = false;
+        boolean failed = true;
+        try {
+            super.execute();
+            failed = false;
+        } finally {
+            reportRewrittenPoms(failed);
+        }
+    }
+
     @Override
-    protected void executeForPom(String pom) throws MojoExecutionException, MojoFailureException {
+    protected void executeForPom(File pomFile, String pom, PomEncoding encoding)
+            throws MojoExecutionException, MojoFailureException {
+        TemporaryPomFile tidyPomFile = new TemporaryPomFile(pomFile, encoding);
         try {
-            String tidyPom = tidy(pom);
-            fileWrite(getPomFile(), tidyPom);
+            rewritten = writeIfUntidy(pom, encoding, tidyPomFile);
+            if (rewritten) {
+                tidyPomFile.replacePom();
+                getLog().info("Rewrote the POM " + pomFile + ".");
+            } else {
+                getLog().info("The POM " + pomFile + " is already tidy.");
+            }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to write the tidy POM.", e);
+        } finally {
+            tidyPomFile.delete();
         }
     }
+
+    /**
+     * Logs the number of rewritten POMs after the last POM of the reactor has been processed. A failed POM logs the
+     * number of POMs rewritten so far, because the build usually stops with it.
+     */
+    private void reportRewrittenPoms(boolean failed) {
+        if (session == null) {
+            return;
+        }
+        String summary;
+        synchronized (STATISTICS) {
+            RewriteStatistics statistics = STATISTICS.computeIfAbsent(session, key -> new RewriteStatistics());
+            ++statistics.poms;
+            if (rewritten) {
+                ++statistics.rewrittenPoms;
+            }
+            if (statistics.poms >= session.getProjects().size()) {
+                STATISTICS.remove(session);
+            } else if (!failed) {
+                return;
+            }
+            summary = "Rewrote " + statistics.rewrittenPoms + " of " + statistics.poms + " POMs.";
+        }
+        getLog().info(summary);
+    }
+
+    private static class RewriteStatistics {
+        int poms;
+
+        int rewrittenPoms;
+    }
 }
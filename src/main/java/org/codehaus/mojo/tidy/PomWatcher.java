@@ -0,0 +1,152 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches POM files and reports the POMs that have changed. A watch service can only watch directories, therefore
+ * the directories of the POMs are watched and the events of other files are ignored. An editor often writes a file
+ * in several steps, e.g. by truncating it and writing it or by writing a temporary file and moving it. The events
+ * are therefore collected until no event has arrived for the debounce time, and every changed POM is reported once.
+ */
+class PomWatcher implements Closeable {
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private final Set<Path> pomFiles = new HashSet<>();
+
+    private final long debounceMillis;
+
+    /**
+     * Creates a watcher and registers the directories of the POMs.
+     *
+     * @param pomFiles       the POM files.
+     * @param debounceMillis the time in milliseconds without events that ends a burst of events.
+     * @throws IOException if a directory cannot be watched.
+     */
+    PomWatcher(Collection<Path> pomFiles, long debounceMillis) throws IOException {
+        this.debounceMillis = debounceMillis;
+        this.watchService = pomFiles.isEmpty()
+                ? null
+                : pomFiles.iterator().next().toAbsolutePath().getFileSystem().newWatchService();
+        try {
+            Set<Path> registeredDirectories = new HashSet<>();
+            for (Path pomFile : pomFiles) {
+                Path absolutePomFile = pomFile.toAbsolutePath().normalize();
+                this.pomFiles.add(absolutePomFile);
+                Path directory = absolutePomFile.getParent();
+                if (registeredDirectories.add(directory)) {
+                    directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), directory);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of watched POMs.
+     */
+    int getNumberOfPoms() {
+        return pomFiles.size();
+    }
+
+    /**
+     * Waits for changes of the POMs and reports them until the watcher is closed or the thread is interrupted.
+     *
+     * @param changedPomFiles the consumer of every POM that has changed. It is called by the watching thread.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    void watch(Consumer<Path> changedPomFiles) throws InterruptedException {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            while (true) {
+                Set<Path> changes = new LinkedHashSet<>();
+                collectChanges(watchService.take(), changes);
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collectChanges(key, changes);
+                }
+                changes.forEach(changedPomFiles);
+            }
+        } catch (ClosedWatchServiceException e) {
+            // the watcher has been closed
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changes) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                addPomFilesOfDirectory(directory, changes);
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (pomFiles.contains(file)) {
+                    changes.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Adds all POMs of a directory, because events have been lost and every POM may have changed.
+     */
+    private void addPomFilesOfDirectory(Path directory, Set<Path> changes) {
+        for (Path pomFile : pomFiles) {
+            if (pomFile.getParent().equals(directory)) {
+                changes.add(pomFile);
+            }
+        }
+    }
+
+    /**
+     * Stops watching. A thread that waits for changes returns.
+     */
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A persistent cache of POMs that are known to be tidy. The cache stores an empty file for every tidy POM. The
+ * name of the file is a hash of the POM and of the configuration that was used for tidying it. A changed POM or
+ * a different configuration, e.g. another version of the plugin, therefore never hits an existing entry.
+ */
+class TidyCache {
+    private final File directory;
+
+    private final String configuration;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory     the directory that contains the entries of the cache.
+     * @param configuration an identifier of the configuration that is used for tidying.
+     */
+    TidyCache(File directory, String configuration) {
+        this.directory = directory;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Returns whether the given POM is known to be tidy.
+     *
+     * @param pom the POM.
+     * @return <code>true</code> if the POM has been recorded as tidy before.
+     */
+    boolean isTidy(String pom) {
+        return getEntry(pom).isFile();
+    }
+
+    /**
+     * Records that the given POM is tidy.
+     *
+     * @param pom the POM.
+     * @throws IOException if the entry cannot be written.
+     */
+    void markTidy(String pom) throws IOException {
+        File entry = getEntry(pom);
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Failed to create the directory " + directory + ".");
+        }
+        if (!entry.createNewFile() && !entry.isFile()) {
+            throw new IOException("Failed to create the file " + entry + ".");
+        }
+    }
+
+    private File getEntry(String pom) {
+        MessageDigest digest = createDigest();
+        digest.update(configuration.getBytes(UTF_8));
+        digest.update((byte) 0);
+        digest.update(pom.getBytes(UTF_8));
+        return new File(directory, String.format("%064x", new BigInteger(1, digest.digest())));
+    }
+
+    private MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The JVM does not support SHA-256.", e);
+        }
+    }
+}
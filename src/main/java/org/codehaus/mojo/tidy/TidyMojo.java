@@ -23,22 +23,44 @@ import javax.xml.stream.XMLStreamException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.tidy.task.DecodedPom;
+import org.codehaus.mojo.tidy.task.LineSeparator;
+import org.codehaus.mojo.tidy.task.OrderingRules;
+import org.codehaus.mojo.tidy.task.PomEncoding;
 import org.codehaus.mojo.tidy.task.PomTidy;
+import org.codehaus.mojo.tidy.task.PomTidy.WriterFactory;
+import org.codehaus.mojo.tidy.task.TidyLimitExceededException;
+import org.codehaus.mojo.tidy.task.TidyLimits;
+import org.codehaus.mojo.tidy.task.TidyMetrics;
+import org.codehaus.mojo.tidy.task.TidyMetrics.Measurement;
+import org.codehaus.mojo.tidy.task.TidyResultCache;
+import org.codehaus.mojo.tidy.task.TidyViolation;
 
-import static org.codehaus.plexus.util.FileUtils.fileRead;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * An abstract base class for Mojos of the Tidy plugin. Handles common
  * configuration issues and provides the POM as String.
  */
 public abstract class TidyMojo extends AbstractMojo {
-    private static final PomTidy POM_TIDY = new PomTidy();
+    private static final Map<MavenSession, Map<Class<?>, ReactorMetrics>> REACTOR_METRICS = new WeakHashMap<>();
 
     /**
      * The Maven Project.
@@ -46,6 +68,12 @@ public abstract class TidyMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     protected MavenProject project;
 
+    /**
+     * The Maven Session.
+     */
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    protected MavenSession session;
+
     /**
      * The path of the pom file to process.
      *
@@ -60,35 +88,135 @@ public abstract class TidyMojo extends AbstractMojo {
     @Parameter(property = "tidy.skip", defaultValue = "false")
     protected boolean skip;
 
+    /**
+     * The line separator that is used for the lines that are added or reordered: <code>LF</code>,
+     * <code>CRLF</code> or <code>CR</code>. By default the separator that ends the first line of the POM is used.
+     * The separators of the lines that stay untouched are not changed.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.lineSeparator")
+    private LineSeparator lineSeparator;
+
+    /**
+     * Additional rules for the order of the elements. A rule replaces the default rule of the same scope.
+     * <pre>
+     * &lt;orderingRules&gt;
+     *   &lt;orderingRule&gt;
+     *     &lt;scope&gt;execution&lt;/scope&gt;
+     *     &lt;order&gt;id, phase | goals | inherited, configuration&lt;/order&gt;
+     *   &lt;/orderingRule&gt;
+     * &lt;/orderingRules&gt;
+     * </pre>
+     *
+     * @since 1.5.0
+     */
+    @Parameter
+    private List<OrderingRule> orderingRules;
+
+    /**
+     * A UTF-8 encoded file with additional rules for the order of the elements. It has one rule per line, e.g.
+     * <code>execution = id, phase | goals | inherited, configuration</code>, and lines that start with
+     * <code>#</code> are comments. The <code>orderingRules</code> take precedence over the rules of this file.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.orderingRulesFile")
+    private File orderingRulesFile;
+
+    /**
+     * Set this to 'true' to measure the wall time, the XML events and the allocated bytes of every task and of
+     * every scope of the ordering rules. The measurements of all POMs of the reactor are logged after the last POM
+     * and are written to <code>tidy-metrics.json</code> in the build directory of the top-level project.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.metrics", defaultValue = "false")
+    private boolean metrics;
+
+    /**
+     * The maximum number of characters of a POM. A longer POM is not tidied and fails the build, so that a huge
+     * machine generated POM cannot take all the memory. By default there is no limit, because generated POMs of
+     * tens of MB, e.g. flattened BOMs, are tidied on purpose.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.maxPomLength", defaultValue = "0")
+    private int maxPomLength;
+
+    /**
+     * The maximum depth of the elements of a POM, e.g. of deeply nested plugin configurations. A deeper POM is not
+     * tidied and fails the build. Set it to 0 for no limit.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.maxDepth", defaultValue = "1000")
+    private int maxDepth;
+
+    /**
+     * The maximum number of XML events of a POM, e.g. elements, texts and comments. A POM with more events is not
+     * tidied and fails the build. By default there is no limit, like for the length of a POM.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.maxEvents", defaultValue = "0")
+    private int maxEvents;
+
+    /**
+     * The maximum time in seconds for tidying a single POM. The tidy of a POM that takes longer is aborted and fails
+     * the build instead of stalling it. Set it to 0 for no limit.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.timeout", defaultValue = "60")
+    private int timeout;
+
+    private PomTidy pomTidy;
+
+    private String orderingRulesDefinition;
+
     /**
      * Perform whatever build-process behavior this <code>Mojo</code> implements using the specified POM.
      *
-     * @param pom the project's POM.
+     * @param pomFile  the file of the POM.
+     * @param pom      the project's POM.
+     * @param encoding the encoding that the POM has been read with.
      * @throws MojoExecutionException if an unexpected problem occurs.
      *                                Throwing this exception causes a "BUILD ERROR" message to be displayed.
      * @throws MojoFailureException   if an expected problem (such as a compilation failure) occurs.
      *                                Throwing this exception causes a "BUILD FAILURE" message to be displayed.
      */
-    protected abstract void executeForPom(String pom) throws MojoExecutionException, MojoFailureException;
+    protected abstract void executeForPom(File pomFile, String pom, PomEncoding encoding)
+            throws MojoExecutionException, MojoFailureException;
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        if (skip) {
-            getLog().info("Tidy is skipped.");
-            return;
+        try {
+            if (skip) {
+                getLog().info("Tidy is skipped.");
+                return;
+            }
+            DecodedPom pom = readPom(getPomFile());
+            executeForPom(getPomFile(), pom.getPom(), pom.getEncoding());
+        } finally {
+            reportMetrics(false);
         }
-        String pom = getProjectPom();
-        executeForPom(pom);
     }
 
     /**
-     * Returns the project's POM.
+     * Returns the content of the given POM file and its encoding. It is decoded with the encoding of its XML
+     * declaration.
      */
-    private String getProjectPom() throws MojoExecutionException {
+    protected DecodedPom readPom(File pomFile) throws MojoExecutionException {
         try {
-            return fileRead(getPomFile());
+            return DecodedPom.read(pomFile.toPath());
+        } catch (CharacterCodingException e) {
+            throw new MojoExecutionException(
+                    "The POM " + pomFile + " contains bytes that are invalid in its encoding.", e);
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to read the POM.", e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("The encoding of the POM " + pomFile + " is not supported.", e);
         }
     }
 
@@ -99,14 +227,224 @@ public abstract class TidyMojo extends AbstractMojo {
         return this.pomFile;
     }
 
+    /**
+     * Returns an identifier of the configuration of the formatting. POMs that are tidy for one configuration are
+     * tidy for every other configuration with the same identifier.
+     */
+    protected String getConfigurationFingerprint() throws MojoExecutionException {
+        return "lineSeparator=" + lineSeparator + "\nlimits=" + createLimits() + "\n" + getOrderingRulesDefinition();
+    }
+
+    private synchronized PomTidy getPomTidy() throws MojoExecutionException {
+        if (pomTidy == null) {
+            try {
+                pomTidy = new PomTidy(
+                        lineSeparator,
+                        OrderingRules.compile(getOrderingRulesDefinition()),
+                        createLimits(),
+                        TidyResultCache.getShared());
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Invalid ordering rules: " + e.getMessage(), e);
+            }
+            if (metrics && session != null) {
+                synchronized (REACTOR_METRICS) {
+                    pomTidy.setMetrics(getReactorMetrics().metrics);
+                }
+            }
+        }
+        return pomTidy;
+    }
+
+    private TidyLimits createLimits() throws MojoExecutionException {
+        try {
+            return TidyLimits.getDefault()
+                    .withMaxLength(maxPomLength)
+                    .withMaxDepth(maxDepth)
+                    .withMaxEvents(maxEvents)
+                    .withTimeoutMillis(TimeUnit.SECONDS.toMillis(timeout));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid limits: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates the exception for a POM that exceeds a limit. It names the parameter that sets the limit.
+     */
+    private static MojoExecutionException createLimitException(TidyLimitExceededException e) {
+        String parameter;
+        switch (e.getLimit()) {
+            case LENGTH:
+                parameter = "tidy.maxPomLength";
+                break;
+            case DEPTH:
+                parameter = "tidy.maxDepth";
+                break;
+            case EVENTS:
+                parameter = "tidy.maxEvents";
+                break;
+            default:
+                parameter = "tidy.timeout";
+                break;
+        }
+        return new MojoExecutionException(e.getMessage() + " The limit is set by the parameter " + parameter + ".", e);
+    }
+
+    /**
+     * Returns the metrics of the executions of this goal in the session. Other goals, e.g. a check after a tidy,
+     * have metrics of their own.
+     */
+    private ReactorMetrics getReactorMetrics() {
+        return REACTOR_METRICS
+                .computeIfAbsent(session, key -> new HashMap<>())
+                .computeIfAbsent(getClass(), key -> new ReactorMetrics());
+    }
+
+    /**
+     * Records that this execution has finished. Logs the metrics of the reactor and writes them to a file if
+     * metrics are enabled and this goal has been executed for every project of the reactor.
+     *
+     * @param lastExecution <code>true</code> if this is the last execution of the reactor anyway, e.g. because
+     *                      this Mojo is an aggregator.
+     */
+    protected void reportMetrics(boolean lastExecution) {
+        if (!metrics || session == null) {
+            return;
+        }
+        TidyMetrics reactorMetrics;
+        synchronized (REACTOR_METRICS) {
+            ReactorMetrics executions = getReactorMetrics();
+            executions.finishedProjects.add(project);
+            if (!lastExecution && !executions.finishedProjects.containsAll(session.getProjects())) {
+                return;
+            }
+            REACTOR_METRICS.get(session).remove(getClass());
+            reactorMetrics = executions.metrics;
+        }
+        getLog().info("Tidy metrics of " + reactorMetrics.getNumberOfPoms() + " POMs:");
+        for (Measurement measurement : reactorMetrics.getTasks()) {
+            getLog().info("  task " + describe(measurement));
+        }
+        for (Measurement measurement : reactorMetrics.getScopes()) {
+            getLog().info("  scope " + describe(measurement));
+        }
+        writeMetrics(reactorMetrics);
+    }
+
+    private String describe(Measurement measurement) {
+        String description = measurement.getName() + ": " + measurement.getCount() + " times, "
+                + measurement.getWallTimeNanos() / 1000000 + " ms, " + measurement.getEvents() + " events";
+        if (measurement.getAllocatedBytes() != -1) {
+            description += ", " + measurement.getAllocatedBytes() / 1024 + " KiB allocated";
+        }
+        return description;
+    }
+
+    private void writeMetrics(TidyMetrics reactorMetrics) {
+        MavenProject topLevelProject = session.getTopLevelProject() == null ? project : session.getTopLevelProject();
+        File metricsFile = new File(topLevelProject.getBuild().getDirectory(), "tidy-metrics.json");
+        try {
+            Files.createDirectories(metricsFile.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(metricsFile.toPath(), UTF_8)) {
+                reactorMetrics.writeJson(writer);
+            }
+            getLog().info("Wrote the tidy metrics to " + metricsFile + ".");
+        } catch (IOException e) {
+            getLog().warn("Failed to write the tidy metrics to " + metricsFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the definition of the ordering rules. The rules of the file come first, so that the rules of the
+     * plugin configuration replace rules of the file with the same scope.
+     */
+    private synchronized String getOrderingRulesDefinition() throws MojoExecutionException {
+        if (orderingRulesDefinition == null) {
+            StringBuilder definition = new StringBuilder();
+            if (orderingRulesFile != null) {
+                try {
+                    definition.append(new String(Files.readAllBytes(orderingRulesFile.toPath()), UTF_8));
+                    definition.append('\n');
+                } catch (IOException e) {
+                    throw new MojoExecutionException(
+                            "Failed to read the ordering rules file " + orderingRulesFile + ".", e);
+                }
+            }
+            if (orderingRules != null) {
+                for (OrderingRule rule : orderingRules) {
+                    if (rule.getScope() == null || rule.getOrder() == null) {
+                        throw new MojoExecutionException("Every ordering rule needs a scope and an order.");
+                    }
+                    definition.append(rule.getScope()).append(" = ").append(rule.getOrder()).append('\n');
+                }
+            }
+            orderingRulesDefinition = definition.toString();
+        }
+        return orderingRulesDefinition;
+    }
+
     /**
      * Tidy the given POM.
      */
     protected String tidy(String pom) throws MojoExecutionException {
         try {
-            return POM_TIDY.tidy(pom);
+            return getPomTidy().tidy(pom);
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (TidyLimitExceededException e) {
+            throw createLimitException(e);
+        }
+    }
+
+    /**
+     * Returns the offset of the first character of the given POM that differs from the tidy POM or -1 if the POM is
+     * tidy.
+     */
+    protected int findFirstDifference(String pom) throws MojoExecutionException {
+        try {
+            return getPomTidy().findFirstDifference(pom);
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (TidyLimitExceededException e) {
+            throw createLimitException(e);
+        }
+    }
+
+    /**
+     * Returns the violations of the rules in the given POM of a file with the given encoding.
+     */
+    protected List<TidyViolation> findViolations(String pom, PomEncoding encoding) throws MojoExecutionException {
+        try {
+            return getPomTidy().findViolations(pom, encoding);
         } catch (XMLStreamException e) {
             throw new MojoExecutionException(e.getMessage(), e);
+        } catch (TidyLimitExceededException e) {
+            throw createLimitException(e);
         }
     }
+
+    /**
+     * Tidy the given POM of a file with the given encoding and write the tidy POM to a writer of the given factory
+     * unless the POM is already tidy.
+     *
+     * @return <code>true</code> if the tidy POM has been written.
+     */
+    protected boolean writeIfUntidy(String pom, PomEncoding encoding, WriterFactory writerFactory)
+            throws MojoExecutionException, IOException {
+        try {
+            return getPomTidy().writeIfUntidy(pom, encoding, writerFactory);
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (TidyLimitExceededException e) {
+            throw createLimitException(e);
+        }
+    }
+
+    /**
+     * The metrics of the POMs of a reactor and the projects whose executions have finished.
+     */
+    private static class ReactorMetrics {
+        final TidyMetrics metrics = new TidyMetrics();
+
+        final Set<MavenProject> finishedProjects = new HashSet<>();
+    }
 }
@@ -0,0 +1,125 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.tidy.task.DecodedPom;
+import org.codehaus.mojo.tidy.task.PomEncoding;
+import org.codehaus.mojo.tidy.task.TemporaryPomFile;
+
+/**
+ * Watches the <code>pom.xml</code> files of all projects of the reactor and tidies up every POM that is saved. The
+ * goal runs until it is stopped, e.g. by Ctrl+C, and tidies the POMs with the same warm instance, so that a saved
+ * POM is tidied within milliseconds.
+ *
+ * @since 1.5.0
+ */
+@Mojo(name = "watch", aggregator = true)
+public class WatchMojo extends TidyMojo {
+    /**
+     * The time in milliseconds without further changes after which the changed POMs are tidied up. Editors often
+     * write a file in several steps, which must not be tidied one by one.
+     *
+     * @since 1.5.0
+     */
+    @Parameter(property = "tidy.debounceMillis", defaultValue = "5")
+    private long debounceMillis;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Tidy is skipped.");
+            return;
+        }
+        Set<Path> pomFiles = getPomFiles();
+        try (PomWatcher watcher = new PomWatcher(pomFiles, debounceMillis)) {
+            getLog().info("Watching " + watcher.getNumberOfPoms() + " POMs. Press Ctrl+C to stop.");
+            watcher.watch(pomFile -> tidyChangedPom(pomFile.toFile()));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to watch the POMs: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().info("Stopped watching the POMs.");
+        }
+    }
+
+    private Set<Path> getPomFiles() {
+        Set<Path> pomFiles = new LinkedHashSet<>();
+        if (session == null) {
+            pomFiles.add(getPomFile().toPath());
+        } else {
+            for (MavenProject reactorProject : session.getProjects()) {
+                if (reactorProject.getFile() != null) {
+                    pomFiles.add(reactorProject.getFile().toPath());
+                }
+            }
+        }
+        return pomFiles;
+    }
+
+    /**
+     * Tidies up a POM that has changed. Failures are logged, because the POM may be saved again while it is
+     * edited. This includes unexpected runtime exceptions, e.g. of a half-written POM, which must not stop the
+     * watching.
+     */
+    private void tidyChangedPom(File pomFile) {
+        if (!pomFile.isFile()) {
+            return;
+        }
+        try {
+            DecodedPom pom = readPom(pomFile);
+            executeForPom(pomFile, pom.getPom(), pom.getEncoding());
+        } catch (MojoExecutionException e) {
+            getLog().error("Failed to tidy the POM " + pomFile + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            getLog().error("Failed to tidy the POM " + pomFile + ": " + e, e);
+        }
+    }
+
+    @Override
+    protected void executeForPom(File pomFile, String pom, PomEncoding encoding) throws MojoExecutionException {
+        long start = System.nanoTime();
+        TemporaryPomFile tidyPomFile = new TemporaryPomFile(pomFile, encoding);
+        try {
+            if (!writeIfUntidy(pom, encoding, tidyPomFile)) {
+                getLog().debug("The POM " + pomFile + " is already tidy.");
+            } else if (!readPom(pomFile).getPom().equals(pom)) {
+                getLog().info("The POM " + pomFile + " has changed again and is tidied up later.");
+            } else {
+                tidyPomFile.replacePom();
+                getLog().info("Rewrote the POM " + pomFile + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Failed to write the tidy POM.", e);
+        } finally {
+            tidyPomFile.delete();
+        }
+    }
+}
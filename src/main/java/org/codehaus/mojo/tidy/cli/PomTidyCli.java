@@ -0,0 +1,312 @@
+package org.codehaus.mojo.tidy.cli;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.mojo.tidy.task.DecodedPom;
+import org.codehaus.mojo.tidy.task.LineSeparator;
+import org.codehaus.mojo.tidy.task.OrderingRules;
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.codehaus.mojo.tidy.task.TemporaryPomFile;
+import org.codehaus.mojo.tidy.task.TidyLimits;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+
+/**
+ * Tidy up POM files outside of Maven, e.g. in a pre-commit hook or in a repository of artifacts. It needs nothing
+ * but the plugin, Plexus Utils and Woodstox on the class path:
+ *
+ * <pre>
+ * java -cp tidy-maven-plugin.jar:plexus-utils.jar:woodstox-core.jar:stax2-api.jar \
+ *     org.codehaus.mojo.tidy.cli.PomTidyCli [options] path...
+ * </pre>
+ *
+ * A path is a POM file, a directory or a glob like <code>modules/&#42;&#42;/pom.xml</code>. All files named
+ * <code>pom.xml</code> or <code>*.pom</code> below a directory are tidied, hidden directories and symbolic links to
+ * directories are skipped. The directories are walked and the POMs are tidied in parallel on a work-stealing pool.
+ * The exit code is 0 if all POMs are tidy or have been tidied, 1 if a POM cannot be tidied or, with
+ * <code>--check</code>, is not tidy, and 2 if the arguments are invalid.
+ */
+public class PomTidyCli {
+    private static final String USAGE = "Usage: PomTidyCli [options] path...\n"
+            + "  --check                  only check that the POMs are tidy, do not rewrite them\n"
+            + "  --line-separator=<sep>   the line separator for new lines: LF, CRLF or CR\n"
+            + "  --ordering-rules=<file>  the file with additional ordering rules\n"
+            + "  --threads=<n>            the number of threads, by default the number of processors\n"
+            + "  --max-length=<n>         the maximum number of characters of a POM, 0 for no limit\n"
+            + "  --max-depth=<n>          the maximum depth of the elements of a POM, 0 for no limit\n"
+            + "  --max-events=<n>         the maximum number of XML events of a POM, 0 for no limit\n"
+            + "  --timeout=<seconds>      the maximum time for tidying a single POM, 0 for no limit\n"
+            + "A path is a POM file, a directory or a glob like modules/**/pom.xml.";
+
+    private static final PathMatcher POM_FILES = path -> {
+        String name = path.getFileName().toString();
+        return name.equals("pom.xml") || name.endsWith(".pom");
+    };
+
+    private final PrintStream out;
+
+    private final PrintStream err;
+
+    private final List<String> paths = new ArrayList<>();
+
+    private boolean check;
+
+    private LineSeparator lineSeparator;
+
+    private OrderingRules orderingRules = OrderingRules.getDefault();
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    private TidyLimits limits = TidyLimits.getDefault();
+
+    private PomTidy pomTidy;
+
+    private final AtomicInteger numPoms = new AtomicInteger();
+
+    private final AtomicInteger numUntidyPoms = new AtomicInteger();
+
+    private final AtomicInteger numFailures = new AtomicInteger();
+
+    PomTidyCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new PomTidyCli(System.out, System.err).run(args));
+    }
+
+    /**
+     * Tidy up the POMs of the given arguments.
+     *
+     * @return the exit code.
+     */
+    int run(String... args) {
+        try {
+            parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+        pomTidy = new PomTidy(lineSeparator, orderingRules, limits);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.invoke(new TidyPaths());
+        } finally {
+            pool.shutdown();
+        }
+        if (check) {
+            out.println("Checked " + numPoms + " POMs, " + numUntidyPoms + " are not tidy, " + numFailures
+                    + " failed.");
+        } else {
+            out.println("Rewrote " + numUntidyPoms + " of " + numPoms + " POMs, " + numFailures + " failed.");
+        }
+        return numFailures.get() == 0 && (!check || numUntidyPoms.get() == 0) ? 0 : 1;
+    }
+
+    private void parseArguments(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--check")) {
+                check = true;
+            } else if (arg.startsWith("--line-separator=")) {
+                lineSeparator = LineSeparator.valueOf(getValue(arg));
+            } else if (arg.startsWith("--ordering-rules=")) {
+                orderingRules = readOrderingRules(Paths.get(getValue(arg)));
+            } else if (arg.startsWith("--threads=")) {
+                numThreads = Integer.parseInt(getValue(arg));
+                if (numThreads < 1) {
+                    throw new IllegalArgumentException("The number of threads must be positive.");
+                }
+            } else if (arg.startsWith("--max-length=")) {
+                limits = limits.withMaxLength(Integer.parseInt(getValue(arg)));
+            } else if (arg.startsWith("--max-depth=")) {
+                limits = limits.withMaxDepth(Integer.parseInt(getValue(arg)));
+            } else if (arg.startsWith("--max-events=")) {
+                limits = limits.withMaxEvents(Integer.parseInt(getValue(arg)));
+            } else if (arg.startsWith("--timeout=")) {
+                limits = limits.withTimeoutMillis(TimeUnit.SECONDS.toMillis(Long.parseLong(getValue(arg))));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option " + arg + ".");
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("No path is given.");
+        }
+    }
+
+    private String getValue(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    private OrderingRules readOrderingRules(Path file) {
+        try {
+            return OrderingRules.compile(new String(Files.readAllBytes(file), UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read the ordering rules file " + file + ".", e);
+        }
+    }
+
+    private void reportFailure(Path path, Exception e) {
+        reportFailure(path, e.getMessage());
+    }
+
+    private void reportFailure(Path path, String message) {
+        numFailures.incrementAndGet();
+        err.println(path + ": " + message);
+    }
+
+    /**
+     * Tidy up the POMs of all paths of the arguments.
+     */
+    private class TidyPaths extends RecursiveAction {
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            for (String path : paths) {
+                int startOfGlob = indexOfGlob(path);
+                if (startOfGlob != -1) {
+                    int endOfDirectory = path.lastIndexOf('/', startOfGlob);
+                    Path directory = Paths.get(endOfDirectory == -1 ? "" : path.substring(0, endOfDirectory + 1));
+                    tasks.add(new TidyDirectory(directory, FileSystems.getDefault().getPathMatcher("glob:" + path)));
+                } else if (Files.isDirectory(Paths.get(path))) {
+                    tasks.add(new TidyDirectory(Paths.get(path), POM_FILES));
+                } else {
+                    tasks.add(new TidyFile(Paths.get(path)));
+                }
+            }
+            invokeAll(tasks);
+        }
+
+        private int indexOfGlob(String path) {
+            for (int i = 0; i < path.length(); ++i) {
+                if ("*?[{".indexOf(path.charAt(i)) != -1) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Tidy up the POMs of a directory and its subdirectories. Every subdirectory and every POM is a task of its
+     * own, so that idle threads can steal them.
+     */
+    private class TidyDirectory extends RecursiveAction {
+        private final Path directory;
+
+        private final PathMatcher pomFiles;
+
+        TidyDirectory(Path directory, PathMatcher pomFiles) {
+            this.directory = directory;
+            this.pomFiles = pomFiles;
+        }
+
+        @Override
+        protected void compute() {
+            List<RecursiveAction> tasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    // links to directories are not followed, because they may form a cycle
+                    if (Files.isDirectory(entry, NOFOLLOW_LINKS)) {
+                        if (!entry.getFileName().toString().startsWith(".")) {
+                            tasks.add(new TidyDirectory(entry, pomFiles));
+                        }
+                    } else if (pomFiles.matches(entry)) {
+                        tasks.add(new TidyFile(entry));
+                    }
+                }
+            } catch (IOException e) {
+                reportFailure(directory, e);
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Tidy up a single POM.
+     */
+    private class TidyFile extends RecursiveAction {
+        private final Path pomFile;
+
+        TidyFile(Path pomFile) {
+            this.pomFile = pomFile;
+        }
+
+        @Override
+        protected void compute() {
+            numPoms.incrementAndGet();
+            try {
+                DecodedPom pom = DecodedPom.read(pomFile);
+                if (check) {
+                    checkPom(pom.getPom());
+                } else {
+                    tidyPom(pom);
+                }
+            } catch (CharacterCodingException e) {
+                reportFailure(pomFile, "The POM contains bytes that are invalid in its encoding.");
+            } catch (IOException | XMLStreamException | RuntimeException e) {
+                reportFailure(pomFile, e);
+            }
+        }
+
+        private void checkPom(String pom) throws XMLStreamException {
+            int difference = pomTidy.findFirstDifference(pom);
+            if (difference != -1) {
+                numUntidyPoms.incrementAndGet();
+                out.println(pomFile + ": not tidy at " + PomTidy.describePosition(pom, difference) + ".");
+            }
+        }
+
+        private void tidyPom(DecodedPom pom) throws XMLStreamException, IOException {
+            TemporaryPomFile tidyPomFile = new TemporaryPomFile(pomFile.toFile(), pom.getEncoding());
+            try {
+                if (pomTidy.writeIfUntidy(pom.getPom(), pom.getEncoding(), tidyPomFile)) {
+                    tidyPomFile.replacePom();
+                    numUntidyPoms.incrementAndGet();
+                    out.println("Rewrote " + pomFile + ".");
+                }
+            } finally {
+                tidyPomFile.delete();
+            }
+        }
+    }
+}
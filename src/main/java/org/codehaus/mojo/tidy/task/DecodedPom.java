@@ -0,0 +1,73 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A POM that has been read from a file together with the encoding of the file. The tidy POM is written with the
+ * encoding that the POM has been read with, even if the file changes in the meantime.
+ */
+public final class DecodedPom {
+    private final String pom;
+
+    private final PomEncoding encoding;
+
+    private DecodedPom(String pom, PomEncoding encoding) {
+        this.pom = pom;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Reads a POM file in its encoding. The file is read only once, for detecting the encoding and for decoding it.
+     *
+     * @param pomFile the POM file.
+     * @return the POM and its encoding.
+     * @throws CharacterCodingException if the POM contains bytes that are invalid in its encoding.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the encoding of the POM is not supported.
+     */
+    public static DecodedPom read(Path pomFile) throws IOException {
+        byte[] bytes = Files.readAllBytes(pomFile);
+        PomEncoding encoding = PomEncoding.detect(bytes);
+        return new DecodedPom(encoding.decode(bytes), encoding);
+    }
+
+    /**
+     * Returns the POM without the byte order mark.
+     *
+     * @return the POM.
+     */
+    public String getPom() {
+        return pom;
+    }
+
+    /**
+     * Returns the encoding of the POM file.
+     *
+     * @return the encoding.
+     */
+    public PomEncoding getEncoding() {
+        return encoding;
+    }
+}
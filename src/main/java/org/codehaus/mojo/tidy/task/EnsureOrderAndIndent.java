@@ -19,25 +19,28 @@ package org.codehaus.mojo.tidy.task;
  * under the License.
  */
 
-import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.XMLEvent;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
 import static java.util.Arrays.fill;
-import static org.codehaus.mojo.tidy.task.XMLEventReaderFactory.createEventReaderForPom;
-import static org.codehaus.plexus.util.StringUtils.countMatches;
-import static org.codehaus.plexus.util.StringUtils.isWhitespace;
+import static java.util.Collections.emptyList;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 import static org.codehaus.plexus.util.StringUtils.repeat;
 
 class EnsureOrderAndIndent implements TidyTask {
-    private static final List<SectionSorter> SECTION_SORTERS = asList(
+    static final List<SectionSorter> SECTION_SORTERS = asList(
             new SectionSorter(
                     "/project",
                     new NodeGroup("modelVersion"),
@@ -91,135 +94,849 @@ class EnsureOrderAndIndent implements TidyTask {
             new SectionSorter(
                     "/project/distributionManagement/relocation", new NodeGroup("groupId", "artifactId", "version")));
 
+    /**
+     * The number of characters of a POM from which on its sections are formatted in parallel. Smaller POMs are
+     * formatted faster by a single thread.
+     */
+    static final int PARALLEL_THRESHOLD = 256 * 1024;
+
+    /**
+     * The minimum number of characters of the sections that are formatted by a single task of the parallel mode.
+     */
+    private static final int MIN_TASK_LENGTH = 16 * 1024;
+
+    private final OrderingRules rules;
+
+    private final int parallelThreshold;
+
+    /**
+     * Creates a task that uses the default ordering rules.
+     */
+    EnsureOrderAndIndent() {
+        this(OrderingRules.getDefault());
+    }
+
+    /**
+     * Creates a task that uses the given ordering rules.
+     *
+     * @param rules the ordering rules.
+     */
+    EnsureOrderAndIndent(OrderingRules rules) {
+        this(rules, PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Creates a task that uses the given ordering rules and formats POMs with at least the given number of
+     * characters in parallel.
+     *
+     * @param rules             the ordering rules.
+     * @param parallelThreshold the number of characters from which on a POM is formatted in parallel.
+     */
+    EnsureOrderAndIndent(OrderingRules rules, int parallelThreshold) {
+        this.rules = rules;
+        this.parallelThreshold = parallelThreshold;
+    }
+
     @Override
-    public String tidyPom(String pom, Format format) throws XMLStreamException {
-        for (SectionSorter sorter : SECTION_SORTERS) {
-            pom = sorter.sortSections(pom, format);
+    public void tidyPom(PomDocument pom) throws XMLStreamException {
+        if (pom.getPom().length() < parallelThreshold) {
+            new SinglePassSorter(rules, pom, pom.createEventCursor()).sortSections();
+        } else {
+            sortSectionsInParallel(pom);
         }
-        return pom;
     }
 
-    private static class SectionSorter {
-        final String scope;
+    /**
+     * Formats only the innermost section that encloses a range of the POM, e.g. the dependency that has just been
+     * edited. The POM is parsed only up to the end of that section, so that the time does not depend on the text
+     * that follows the section. Nothing is formatted if no section encloses the range.
+     *
+     * @param document the POM.
+     * @param start    the offset of the first character of the range.
+     * @param end      the offset after the last character of the range.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    void tidyRange(PomDocument document, int start, int end) throws XMLStreamException {
+        SinglePassSorter sorter = new SinglePassSorter(rules, document, document.createPartialEventCursor());
+        Section section = sorter.findEnclosingSection(start, end);
+        if (section != null) {
+            sorter.formatIndexedSection(section, false);
+            document.replace(
+                    section.startOfSection,
+                    section.endOfSection,
+                    section.text,
+                    getRule(rules.sorters.get(section.sorter)),
+                    section.changes);
+        }
+    }
 
-        final NodeGroup[] groups;
+    /**
+     * Sorts the sections on the fork/join pool. The sections are indexed first, so that the sections that are
+     * not nested in each other can be formatted independently. A section whose nested sections are formatted in
+     * parallel uses their formatted text when it is formatted itself. The edits are recorded in document order by
+     * the calling thread.
+     */
+    private void sortSectionsInParallel(PomDocument document) throws XMLStreamException {
+        List<Section> sections = new SinglePassSorter(rules, document, document.createEventCursor()).indexSections();
+        // computes all lines once before the threads share them
+        document.getStartOfLine(document.getPom().length());
+        new FormatSections(document, sections, 0, sections.size(), Thread.currentThread()).invoke();
+        for (Section section : sections) {
+            document.replace(
+                    section.startOfSection,
+                    section.endOfSection,
+                    section.text,
+                    getRule(rules.sorters.get(section.sorter)),
+                    section.changes);
+        }
+    }
 
-        final List<String> sequence;
+    /**
+     * Returns the rule of a sorter that a section violates if it changes when it is formatted.
+     */
+    private static String getRule(SectionSorter sorter) {
+        return "order and indent of " + sorter.scope.scope;
+    }
 
-        SectionSorter(String scope, NodeGroup... groups) {
-            this.scope = scope;
-            this.groups = groups;
-            this.sequence = calculateSequence(groups);
+    /**
+     * A section of the POM that is found by indexing the POM and the results of formatting it.
+     */
+    private static class Section {
+        final int sorter;
+
+        final int startEvent;
+
+        final int startOffset;
+
+        final int startOfSection;
+
+        final String[] path;
+
+        final boolean[] activeSorters;
+
+        final List<Section> nestedSections = new ArrayList<>();
+
+        int endEvent;
+
+        int endOffset;
+
+        PieceText text;
+
+        int endOfSection;
+
+        List<PomDocument.Edit> changes;
+
+        Section(
+                int sorter,
+                int startEvent,
+                int startOffset,
+                int startOfSection,
+                String[] path,
+                boolean[] activeSorters) {
+            this.sorter = sorter;
+            this.startEvent = startEvent;
+            this.startOffset = startOffset;
+            this.startOfSection = startOfSection;
+            this.path = path;
+            this.activeSorters = activeSorters;
         }
+    }
 
-        List<String> calculateSequence(NodeGroup[] groups) {
-            List<String> sequence = new ArrayList<String>();
-            for (NodeGroup group : groups) {
-                sequence.addAll(group.nodes);
+    /**
+     * Formats a range of sibling sections. Large ranges are split in halves and a large section formats its nested
+     * sections in parallel before it is formatted itself. Every task that formats sections uses a cursor of its
+     * own. The bytes that other threads than the calling thread allocate are recorded in the document, so that the
+     * metrics of the task include them.
+     */
+    private class FormatSections extends RecursiveAction {
+        private final PomDocument document;
+
+        private final List<Section> sections;
+
+        private final int from;
+
+        private final int to;
+
+        private final Thread callingThread;
+
+        FormatSections(PomDocument document, List<Section> sections, int from, int to, Thread callingThread) {
+            this.document = document;
+            this.sections = sections;
+            this.from = from;
+            this.to = to;
+            this.callingThread = callingThread;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && getLength(from, to) >= MIN_TASK_LENGTH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new FormatSections(document, sections, from, middle, callingThread),
+                        new FormatSections(document, sections, middle, to, callingThread));
+                return;
+            }
+            SinglePassSorter sorter = null;
+            for (int i = from; i < to; ++i) {
+                Section section = sections.get(i);
+                List<Section> nestedSections = section.nestedSections;
+                boolean formatNestedSections = getLength(i, i + 1) >= MIN_TASK_LENGTH && !nestedSections.isEmpty();
+                if (formatNestedSections) {
+                    new FormatSections(document, nestedSections, 0, nestedSections.size(), callingThread).invoke();
+                }
+                // the nested sections are measured by the tasks that format them
+                boolean measured = document.getMetrics() != null && Thread.currentThread() != callingThread;
+                long bytes = measured ? TidyMetrics.getAllocatedBytes() : -1;
+                if (sorter == null) {
+                    sorter = new SinglePassSorter(rules, document, createEventCursor());
+                }
+                sorter.formatIndexedSection(section, formatNestedSections);
+                if (bytes != -1) {
+                    document.recordWorkerAllocatedBytes(TidyMetrics.getAllocatedBytes() - bytes);
+                }
             }
-            return sequence;
         }
 
-        String sortSections(String pom, Format format) throws XMLStreamException {
-            XMLEventReader reader = createEventReaderForPom(pom);
-            String path = "";
-            int posFirstUnformatted = 0;
-            StringBuilder tidyPom = new StringBuilder();
-            while (reader.hasNext()) {
-                XMLEvent event = reader.nextEvent();
-                if (event.isStartElement()) {
-                    path += "/" + event.asStartElement().getName().getLocalPart();
-                    if (isStartElementOfScope(path)) {
-                        int pos = getPosOfNextEvent(reader);
-                        tidyPom.append(pom.substring(posFirstUnformatted, pos));
-                        tidyPom.append(formatSection(reader, pom, format));
-                        posFirstUnformatted = getPosOfNextEvent(reader);
+        private int getLength(int fromSection, int toSection) {
+            return sections.get(toSection - 1).endOffset - sections.get(fromSection).startOffset;
+        }
+
+        private PomEventCursor createEventCursor() {
+            try {
+                return document.createEventCursor();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("The POM has been parsed before it is indexed.", e);
+            }
+        }
+    }
+
+    /**
+     * Sorts the sections of all {@link SectionSorter}s while reading the POM only once. A section that is nested in
+     * another section is formatted first and its formatted text is used when the enclosing section is formatted.
+     * A section is not sorted again by its own sorter while this sorter formats an enclosing section.
+     */
+    private static class SinglePassSorter {
+        final OrderingRules rules;
+
+        final PomDocument document;
+
+        final String pom;
+
+        final PomEventCursor cursor;
+
+        final boolean[] activeSorters;
+
+        final ElementPath path = new ElementPath();
+
+        int endOfSection;
+
+        List<Section> formattedSections = emptyList();
+
+        int nextFormattedSection;
+
+        long nestedNanos;
+
+        long nestedEvents;
+
+        long nestedBytes;
+
+        /**
+         * The changes of the sections that have been formatted for the current outermost section or
+         * <code>null</code> if the document does not record violations.
+         */
+        List<PomDocument.Edit> changes;
+
+        SinglePassSorter(OrderingRules rules, PomDocument document, PomEventCursor cursor) {
+            this.rules = rules;
+            this.activeSorters = new boolean[rules.sorters.size()];
+            this.document = document;
+            this.pom = document.getPom();
+            this.cursor = cursor;
+        }
+
+        void sortSections() {
+            while (cursor.hasNext()) {
+                int type = cursor.next();
+                if (type == START_ELEMENT) {
+                    path.push(cursor.getLocalName());
+                    int sorter = findSorter();
+                    if (sorter != -1) {
+                        int startOfSection = getPosOfNextEvent();
+                        changes = document.isRecordingViolations() ? new ArrayList<>() : null;
+                        PieceText section = formatSection(sorter);
+                        document.replace(
+                                startOfSection, endOfSection, section, getRule(rules.sorters.get(sorter)), changes);
+                        path.pop();
                     }
-                } else if (event.isEndElement()) {
-                    path = substringBeforeLast(path, "/");
+                } else if (type == END_ELEMENT) {
+                    path.pop();
                 }
             }
-            tidyPom.append(pom.substring(posFirstUnformatted));
-            return tidyPom.toString();
         }
 
-        private boolean isStartElementOfScope(String path) {
-            if (scope.startsWith("/")) {
-                return path.equals(scope);
-            } else {
-                return path.endsWith("/" + scope);
+        /**
+         * Finds the sections of the POM. A section is nested in another section if it would be formatted while the
+         * other section is formatted.
+         *
+         * @return the sections that are not nested in another section.
+         */
+        List<Section> indexSections() {
+            List<Section> sections = new ArrayList<>();
+            Deque<Section> enclosingSections = new ArrayDeque<>();
+            while (cursor.hasNext()) {
+                int type = cursor.next();
+                if (type == START_ELEMENT) {
+                    path.push(cursor.getLocalName());
+                    int sorter = findSorter();
+                    if (sorter != -1) {
+                        Section section = new Section(
+                                sorter,
+                                cursor.getPosition(),
+                                cursor.getStartOffset(),
+                                getPosOfNextEvent(),
+                                copyOf(path.names, path.depth),
+                                activeSorters.clone());
+                        Section enclosingSection = enclosingSections.peek();
+                        (enclosingSection == null ? sections : enclosingSection.nestedSections).add(section);
+                        enclosingSections.push(section);
+                        activeSorters[sorter] = true;
+                    }
+                } else if (type == END_ELEMENT) {
+                    Section section = enclosingSections.peek();
+                    if (section != null && section.path.length == path.depth) {
+                        section.endEvent = cursor.getPosition();
+                        section.endOffset = cursor.getStartOffset();
+                        activeSorters[section.sorter] = false;
+                        enclosingSections.pop();
+                    }
+                    path.pop();
+                }
             }
+            return sections;
         }
 
-        private String formatSection(XMLEventReader reader, String pom, Format format) throws XMLStreamException {
-            int startOfSection = getPosOfNextEvent(reader);
-            int[] starts = new int[sequence.size()];
-            int[] ends = new int[sequence.size()];
-            XMLEvent endScope = calculateStartsAndEnds(reader, starts, ends);
-            return formatSection(reader, pom, format, startOfSection, starts, ends, endScope);
+        /**
+         * Finds the innermost section that encloses a range of the POM. The cursor reads the events while they are
+         * parsed and the parsing stops after the end of the section. Only the sections that start before the range
+         * are tracked, because no other section can enclose it.
+         *
+         * @return the section or <code>null</code> if no section encloses the range.
+         */
+        Section findEnclosingSection(int start, int end) throws XMLStreamException {
+            Deque<Section> enclosingSections = new ArrayDeque<>();
+            while (parseNextEvent()) {
+                int type = cursor.next();
+                // the offset after the current event is the offset of the next event
+                parseNextEvent();
+                if (type == START_ELEMENT) {
+                    boolean startsBeforeRange = cursor.getStartOffset() <= start;
+                    if (!startsBeforeRange && enclosingSections.isEmpty()) {
+                        return null;
+                    }
+                    path.push(cursor.getLocalName());
+                    int sorter = startsBeforeRange ? findSorter() : -1;
+                    if (sorter != -1) {
+                        enclosingSections.push(new Section(
+                                sorter,
+                                cursor.getPosition(),
+                                cursor.getStartOffset(),
+                                getPosOfNextEvent(),
+                                copyOf(path.names, path.depth),
+                                activeSorters.clone()));
+                        activeSorters[sorter] = true;
+                    }
+                } else if (type == END_ELEMENT) {
+                    Section section = enclosingSections.peek();
+                    if (section != null && section.path.length == path.depth) {
+                        if (end <= pom.indexOf('>', cursor.getStartOffset()) + 1) {
+                            return section;
+                        }
+                        activeSorters[section.sorter] = false;
+                        enclosingSections.pop();
+                    }
+                    path.pop();
+                }
+            }
+            return null;
         }
 
-        private XMLEvent calculateStartsAndEnds(XMLEventReader reader, int[] starts, int[] ends)
-                throws XMLStreamException {
+        /**
+         * Makes sure that the event after the current event has been parsed.
+         *
+         * @return <code>false</code> if there is no further event.
+         */
+        private boolean parseNextEvent() throws XMLStreamException {
+            return cursor.hasNext() || document.parseNextEvent();
+        }
+
+        /**
+         * Formats a section that has been found by {@link #indexSections()} or by
+         * {@link #findEnclosingSection(int, int)}.
+         *
+         * @param section                 the section.
+         * @param nestedSectionsFormatted whether the nested sections have already been formatted.
+         */
+        void formatIndexedSection(Section section, boolean nestedSectionsFormatted) {
+            cursor.moveTo(section.startEvent);
+            path.set(section.path);
+            System.arraycopy(section.activeSorters, 0, activeSorters, 0, activeSorters.length);
+            formattedSections = nestedSectionsFormatted ? section.nestedSections : emptyList();
+            nextFormattedSection = 0;
+            changes = document.isRecordingViolations() ? new ArrayList<>() : null;
+            section.text = formatSection(section.sorter);
+            section.endOfSection = endOfSection;
+            section.changes = changes;
+        }
+
+        /**
+         * Formats a nested section unless it has already been formatted.
+         */
+        private PieceText formatNestedSection(int sorterIndex) {
+            if (nextFormattedSection == formattedSections.size()) {
+                return formatSection(sorterIndex);
+            }
+            Section section = formattedSections.get(nextFormattedSection++);
+            if (section.startEvent != cursor.getPosition()) {
+                throw new IllegalStateException("The section at event " + cursor.getPosition() + " is not indexed.");
+            }
+            cursor.moveTo(section.endEvent);
+            endOfSection = section.endOfSection;
+            if (changes != null) {
+                changes.addAll(section.changes);
+            }
+            return section.text;
+        }
+
+        private int findSorter() {
+            for (int i : rules.getCandidateSorters(path.names[path.depth - 1])) {
+                if (!activeSorters[i] && rules.sorters.get(i).scope.matches(path)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Formats a section and records its measurements if the document is measured. The measurements of a
+         * section do not include the measurements of the sections that are nested in it.
+         */
+        private PieceText formatSection(int sorterIndex) {
+            TidyMetrics metrics = document.getMetrics();
+            if (metrics == null) {
+                return formatUnmeasuredSection(sorterIndex);
+            }
+            long outerNestedNanos = nestedNanos;
+            long outerNestedEvents = nestedEvents;
+            long outerNestedBytes = nestedBytes;
+            nestedNanos = 0;
+            nestedEvents = 0;
+            nestedBytes = 0;
+            long events = cursor.getNumberOfReadEvents();
+            long bytes = TidyMetrics.getAllocatedBytes();
+            long start = System.nanoTime();
+            try {
+                return formatUnmeasuredSection(sorterIndex);
+            } finally {
+                long nanos = System.nanoTime() - start;
+                events = cursor.getNumberOfReadEvents() - events;
+                bytes = bytes == -1 ? -1 : TidyMetrics.getAllocatedBytes() - bytes;
+                metrics.recordScope(
+                        rules.sorters.get(sorterIndex).scope.scope,
+                        nanos - nestedNanos,
+                        events - nestedEvents,
+                        bytes == -1 ? -1 : bytes - nestedBytes);
+                nestedNanos = outerNestedNanos + nanos;
+                nestedEvents = outerNestedEvents + events;
+                nestedBytes = outerNestedBytes + bytes;
+            }
+        }
+
+        private PieceText formatUnmeasuredSection(int sorterIndex) {
+            SectionSorter sorter = rules.sorters.get(sorterIndex);
+            activeSorters[sorterIndex] = true;
+            try {
+                int startOfSection = getPosOfNextEvent();
+                int[] starts = new int[sorter.sequence.size()];
+                int[] ends = new int[sorter.sequence.size()];
+                SectionText text = new SectionText(pom);
+                int offsetEndElement = calculateStartsAndEnds(sorter, starts, ends, text);
+                int afterSection = pom.indexOf('>', offsetEndElement) + 1;
+                PieceText section = sorter.formatSection(
+                        text, document, startOfSection, starts, ends, offsetEndElement, afterSection);
+                if (changes != null) {
+                    recordChange(sorter, text, startOfSection, afterSection, section);
+                }
+                endOfSection = afterSection;
+                return section;
+            } finally {
+                activeSorters[sorterIndex] = false;
+            }
+        }
+
+        /**
+         * Records the change of a section by its own rule. The section with its formatted nested sections is
+         * compared with the formatted section, so that the changes of the nested sections, which have already been
+         * recorded with their own rules, do not make the enclosing section a violation, too.
+         */
+        private void recordChange(
+                SectionSorter sorter, SectionText text, int startOfSection, int afterSection, PieceText section) {
+            PieceText unsorted = text.substring(startOfSection, afterSection);
+            int maxCommon = min(unsorted.length(), section.length());
+            int prefix = 0;
+            while (prefix < maxCommon && unsorted.charAt(prefix) == section.charAt(prefix)) {
+                ++prefix;
+            }
+            if (prefix == unsorted.length() && prefix == section.length()) {
+                return;
+            }
+            int suffix = 0;
+            while (suffix < maxCommon - prefix
+                    && unsorted.charAt(unsorted.length() - 1 - suffix)
+                            == section.charAt(section.length() - 1 - suffix)) {
+                ++suffix;
+            }
+            int[] start = text.toPomOffset(startOfSection, afterSection, prefix, true);
+            int[] end = text.toPomOffset(startOfSection, afterSection, unsorted.length() - suffix, false);
+            PieceText replacement = section.subSequence(start[1], section.length() - unsorted.length() + end[1]);
+            changes.add(new PomDocument.Edit(start[0], end[0], replacement, getRule(sorter)));
+        }
+
+        /**
+         * Calculates the starts and the ends of the children of a section.
+         *
+         * @return the offset of the end element of the section.
+         */
+        private int calculateStartsAndEnds(SectionSorter sorter, int[] starts, int[] ends, SectionText text) {
             fill(starts, Integer.MAX_VALUE);
             fill(ends, -1);
             int level = 0;
-            while (reader.hasNext()) {
-                XMLEvent event = reader.nextEvent();
-                if (event.isStartElement()) {
+            while (cursor.hasNext()) {
+                int type = cursor.next();
+                if (type == START_ELEMENT) {
                     ++level;
-                    if (level == 1) {
-                        QName name = event.asStartElement().getName();
-                        if (hasToBeSorted(name)) {
-                            int i = getSequenceIndex(name);
-                            starts[i] = event.getLocation().getCharacterOffset();
-                        }
+                    String name = cursor.getLocalName();
+                    path.push(name);
+                    int i = level == 1 ? sorter.getSequenceIndex(name) : -1;
+                    if (i != -1) {
+                        starts[i] = cursor.getStartOffset();
                     }
-                } else if (event.isEndElement()) {
+                    int nestedSorter = findSorter();
+                    if (nestedSorter != -1) {
+                        int startOfNestedSection = getPosOfNextEvent();
+                        PieceText nestedSection = formatNestedSection(nestedSorter);
+                        text.replace(startOfNestedSection, endOfSection, nestedSection);
+                        recordEnd(i, ends);
+                        --level;
+                        path.pop();
+                    }
+                } else if (type == END_ELEMENT) {
                     if (level == 0) {
-                        return event;
-                    } else if (level == 1) {
-                        QName name = event.asEndElement().getName();
-                        if (hasToBeSorted(name)) {
-                            int i = getSequenceIndex(name);
-                            ends[i] = getPosOfNextEvent(reader);
-                        }
+                        return cursor.getStartOffset();
+                    }
+                    if (level == 1) {
+                        recordEnd(sorter.getSequenceIndex(path.names[path.depth - 1]), ends);
                     }
                     --level;
+                    path.pop();
                 }
             }
-            throw new RuntimeException("End element missing.");
+            throw new IllegalStateException("The end element of the section is missing.");
+        }
+
+        private void recordEnd(int sequenceIndex, int[] ends) {
+            if (sequenceIndex != -1) {
+                ends[sequenceIndex] = getPosOfNextEvent();
+            }
+        }
+
+        private int getPosOfNextEvent() {
+            return cursor.getEndOffset();
+        }
+    }
+
+    /**
+     * The local names of the elements from the root element to the current element. Pushing and popping a name does
+     * not allocate unless the POM is nested deeper than ever before.
+     */
+    static class ElementPath {
+        String[] names = new String[16];
+
+        int depth;
+
+        void push(String name) {
+            if (depth == names.length) {
+                names = copyOf(names, 2 * depth);
+            }
+            names[depth++] = name;
         }
 
-        private boolean hasToBeSorted(QName nodeName) {
-            String name = nodeName.getLocalPart();
-            return sequence.contains(name);
+        void pop() {
+            names[--depth] = null;
         }
 
-        private int getSequenceIndex(QName nodeName) {
-            String name = nodeName.getLocalPart();
-            if (sequence.contains(name)) {
-                return sequence.indexOf(name);
+        void set(String[] path) {
+            fill(names, 0, depth, null);
+            if (path.length > names.length) {
+                names = copyOf(path, 2 * path.length);
             } else {
-                throw new IllegalArgumentException(
-                        "The path '" + nodeName + " does not specify an element of the sequence " + sequence + ".");
+                System.arraycopy(path, 0, names, 0, path.length);
+            }
+            depth = path.length;
+        }
+    }
+
+    /**
+     * Matches the path of an element against a scope. A scope that starts with a slash is matched against the whole
+     * path, any other scope is matched against the end of the path. The scope is split into its element names once,
+     * so matching compares names only and does not create any string.
+     */
+    static class ScopeMatcher {
+        final String scope;
+
+        final boolean absolute;
+
+        final String[] names;
+
+        ScopeMatcher(String scope) {
+            this.scope = scope;
+            this.absolute = scope.startsWith("/");
+            String[] names = (absolute ? scope.substring(1) : scope).split("/");
+            for (int i = 0; i < names.length; ++i) {
+                names[i] = names[i].intern();
+            }
+            this.names = names;
+        }
+
+        boolean matches(ElementPath path) {
+            int offset = path.depth - names.length;
+            if (offset < 0 || (absolute && offset != 0)) {
+                return false;
+            }
+            for (int i = names.length - 1; i >= 0; --i) {
+                String name = path.names[offset + i];
+                if (name != names[i] && !name.equals(names[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The text of a section. It is the text of the POM with the nested sections that have already been formatted
+     * replaced by their formatted text. The nested sections are replaced in document order.
+     */
+    private static class SectionText {
+        final String pom;
+
+        final List<int[]> replacedRanges = new ArrayList<>();
+
+        final List<PieceText> replacements = new ArrayList<>();
+
+        SectionText(String pom) {
+            this.pom = pom;
+        }
+
+        void replace(int start, int end, PieceText replacement) {
+            replacedRanges.add(new int[] {start, end});
+            replacements.add(replacement);
+        }
+
+        /**
+         * Returns the text between two offsets of the POM. The text shares the pieces of the formatted nested
+         * sections.
+         */
+        PieceText substring(int start, int end) {
+            PieceText text = new PieceText();
+            appendTo(text, start, end);
+            return text;
+        }
+
+        /**
+         * Appends the text between two offsets of the POM without the whitespace at its start and at its end, like
+         * {@link String#trim()}. Nothing is appended if the trimmed text is empty, otherwise the prefix and the
+         * indent are appended first.
+         */
+        void appendTrimmed(PieceText output, String prefix, String indent, int start, int end) {
+            int trimmedStart = skipLeadingWhitespace(start, end);
+            int trimmedEnd = skipTrailingWhitespace(start, end);
+            if (trimmedStart == -1 || trimmedEnd == -1) {
+                PieceText trimmedText = substring(start, end).trim();
+                if (trimmedText.length() != 0) {
+                    output.append(prefix).append(indent).append(trimmedText);
+                }
+            } else if (trimmedStart < trimmedEnd) {
+                output.append(prefix).append(indent);
+                appendTo(output, trimmedStart, trimmedEnd);
+            }
+        }
+
+        private void appendTo(PieceText output, int start, int end) {
+            int pos = start;
+            for (int i = findFirstReplacement(start); i < replacedRanges.size(); ++i) {
+                int[] range = replacedRanges.get(i);
+                if (range[0] >= end) {
+                    break;
+                } else if (range[1] <= end) {
+                    output.append(pom, pos, range[0]);
+                    output.append(replacements.get(i));
+                    pos = range[1];
+                }
+            }
+            output.append(pom, pos, end);
+        }
+
+        /**
+         * Maps an offset of the text between two offsets of the POM to an offset of the POM. An offset within a
+         * replacement is moved to the start or to the end of the replaced range.
+         *
+         * @param start   the offset of the POM where the text starts.
+         * @param end     the offset of the POM where the text ends.
+         * @param offset  the offset of the text.
+         * @param atStart whether an offset within a replacement is moved to the start of the replaced range.
+         * @return the offset of the POM and the offset of the text that it has been moved to.
+         */
+        int[] toPomOffset(int start, int end, int offset, boolean atStart) {
+            int pos = start;
+            int textOffset = 0;
+            for (int i = findFirstReplacement(start); i < replacedRanges.size(); ++i) {
+                int[] range = replacedRanges.get(i);
+                if (range[0] >= end) {
+                    break;
+                } else if (range[1] <= end) {
+                    int endOfUnchangedText = textOffset + range[0] - pos;
+                    if (atStart ? offset < endOfUnchangedText : offset <= endOfUnchangedText) {
+                        break;
+                    }
+                    int endOfReplacement = endOfUnchangedText + replacements.get(i).length();
+                    if (offset < endOfReplacement) {
+                        return atStart
+                                ? new int[] {range[0], endOfUnchangedText}
+                                : new int[] {range[1], endOfReplacement};
+                    }
+                    textOffset = endOfReplacement;
+                    pos = range[1];
+                }
+            }
+            return new int[] {pos + offset - textOffset, offset};
+        }
+
+        /**
+         * Returns the offset of the first character between the offsets that is not whitespace. Returns -1 if the
+         * whitespace continues in a replacement, which is not measured in offsets of the POM.
+         */
+        private int skipLeadingWhitespace(int start, int end) {
+            int i = findFirstReplacement(start);
+            int limit = i < replacedRanges.size() && replacedRanges.get(i)[1] <= end ? replacedRanges.get(i)[0] : end;
+            int pos = start;
+            while (pos < limit && pom.charAt(pos) <= ' ') {
+                ++pos;
+            }
+            if (pos == limit && limit != end && !startsWithNonWhitespace(replacements.get(i))) {
+                return -1;
+            }
+            return pos;
+        }
+
+        /**
+         * Returns the offset after the last character between the offsets that is not whitespace. Returns -1 if the
+         * whitespace continues in a replacement.
+         */
+        private int skipTrailingWhitespace(int start, int end) {
+            int i = findFirstReplacement(end) - 1;
+            if (i >= 0 && replacedRanges.get(i)[1] > end) {
+                --i;
+            }
+            int limit = i >= 0 && replacedRanges.get(i)[0] >= start ? replacedRanges.get(i)[1] : start;
+            int pos = end;
+            while (pos > limit && pom.charAt(pos - 1) <= ' ') {
+                --pos;
+            }
+            if (pos == limit && limit != start && !endsWithNonWhitespace(replacements.get(i))) {
+                return -1;
+            }
+            return pos;
+        }
+
+        private boolean startsWithNonWhitespace(PieceText text) {
+            return text.length() != 0 && text.charAt(0) > ' ';
+        }
+
+        private boolean endsWithNonWhitespace(PieceText text) {
+            return text.length() != 0 && text.charAt(text.length() - 1) > ' ';
+        }
+
+        /**
+         * Returns the index of the first replacement that starts at or after the given offset.
+         */
+        private int findFirstReplacement(int offset) {
+            int low = 0;
+            int high = replacedRanges.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (replacedRanges.get(middle)[0] < offset) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    static class SectionSorter {
+        final ScopeMatcher scope;
+
+        final NodeGroup[] groups;
+
+        final List<String> sequence;
+
+        final Map<String, Integer> sequenceIndexes = new HashMap<>();
+
+        SectionSorter(String scope, NodeGroup... groups) {
+            this.scope = new ScopeMatcher(scope);
+            this.groups = groups;
+            this.sequence = calculateSequence(groups);
+            for (int i = 0; i < sequence.size(); ++i) {
+                sequenceIndexes.put(sequence.get(i), i);
             }
         }
 
-        private String formatSection(
-                XMLEventReader reader,
-                String pom,
-                Format format,
+        List<String> calculateSequence(NodeGroup[] groups) {
+            List<String> sequence = new ArrayList<String>();
+            for (NodeGroup group : groups) {
+                sequence.addAll(group.nodes);
+            }
+            return sequence;
+        }
+
+        /**
+         * Returns the index of the node with the specified name in the sequence of this sorter or -1 if the node is
+         * not sorted by this sorter.
+         */
+        int getSequenceIndex(String name) {
+            Integer index = sequenceIndexes.get(name);
+            return index == null ? -1 : index;
+        }
+
+        PieceText formatSection(
+                SectionText text,
+                PomDocument document,
                 int startOfSection,
                 int[] starts,
                 int[] ends,
-                XMLEvent endScope)
-                throws XMLStreamException {
-            String outdent = calculateOutdent(pom, endScope);
-            String indent = calculateIndent(pom, starts);
+                int offsetEndElement,
+                int afterSection) {
+            String pom = text.pom;
+            if (!hasSortedNodes(starts)) {
+                return text.substring(startOfSection, afterSection);
+            }
+            Format format = document.getFormat();
+            String outdent = pom.substring(document.getStartOfLine(offsetEndElement), offsetEndElement);
+            String indent = calculateIndent(document, starts);
             int first = calculateFirst(starts, pom);
-            StringBuilder output = new StringBuilder();
-            output.append(pom.substring(startOfSection, first).trim());
+            PieceText output = new PieceText();
+            text.appendTrimmed(output, "", "", startOfSection, first);
             int i = 0;
             boolean firstGroupStarted = false;
             for (NodeGroup group : groups) {
@@ -229,8 +946,9 @@ class EnsureOrderAndIndent implements TidyTask {
                         if (firstGroupStarted && !groupStarted) {
                             output.append(format.getLineSeparator());
                         }
-                        addTextIfNotEmpty(output, indent, getPrecedingText(pom, starts[i], ends), format);
-                        addTextIfNotEmpty(output, indent, pom.substring(starts[i], ends[i]), format);
+                        int startOfPrecedingText = getStartOfPrecedingText(starts[i], ends);
+                        addTextIfNotEmpty(output, indent, text, startOfPrecedingText, starts[i], format);
+                        addTextIfNotEmpty(output, indent, text, starts[i], ends[i], format);
                         firstGroupStarted = true;
                         groupStarted = true;
                     }
@@ -238,16 +956,18 @@ class EnsureOrderAndIndent implements TidyTask {
                 }
             }
             int last = calculateLast(ends);
-            int afterSection = getPosOfNextEvent(reader);
-            int offsetEndElement = endScope.getLocation().getCharacterOffset();
-            addTextIfNotEmpty(output, indent, pom.substring(last, offsetEndElement), format);
-            addTextIfNotEmpty(output, outdent, pom.substring(offsetEndElement, afterSection), format);
-            return output.toString();
+            addTextIfNotEmpty(output, indent, text, last, offsetEndElement, format);
+            addTextIfNotEmpty(output, outdent, text, offsetEndElement, afterSection, format);
+            return output;
         }
 
-        private String calculateOutdent(String pom, XMLEvent endScope) {
-            String before = pom.substring(0, endScope.getLocation().getCharacterOffset());
-            return substringAfterLast(before, "\n");
+        private boolean hasSortedNodes(int[] starts) {
+            for (int start : starts) {
+                if (start != Integer.MAX_VALUE) {
+                    return true;
+                }
+            }
+            return false;
         }
 
         private int calculateFirst(int[] starts, String pom) {
@@ -266,22 +986,24 @@ class EnsureOrderAndIndent implements TidyTask {
             return last;
         }
 
-        private String calculateIndent(String input, int[] starts) {
+        private String calculateIndent(PomDocument document, int[] starts) {
+            String pom = document.getPom();
             int numNodesWithSpaceIndent = 0;
             int numNodesWithTabIndent = 0;
             int spaceIndentTotal = 0;
             int tabIndentTotal = 0;
             for (int start : starts) {
                 if (start != Integer.MAX_VALUE) {
-                    String indent = calculateIndent(input, start);
-                    if (!indent.isEmpty()) {
-                        int numTabs = countMatches(indent, "\t");
-                        if (numTabs == indent.length()) {
+                    int startOfIndent = calculateStartOfIndent(pom, document.getStartOfLine(start), start);
+                    int indentLength = start - startOfIndent;
+                    if (indentLength != 0) {
+                        int numTabs = countTabs(pom, startOfIndent, start);
+                        if (numTabs == indentLength) {
                             ++numNodesWithTabIndent;
                             tabIndentTotal += numTabs;
-                        } else if (!indent.contains("\t")) {
+                        } else if (numTabs == 0) {
                             ++numNodesWithSpaceIndent;
-                            spaceIndentTotal += indent.length();
+                            spaceIndentTotal += indentLength;
                         }
                     }
                 }
@@ -297,55 +1019,48 @@ class EnsureOrderAndIndent implements TidyTask {
             }
         }
 
-        private String calculateIndent(String input, int startOfTag) {
-            for (int i = startOfTag; i > 1; --i) {
-                String character = input.substring(i - 1, i);
-                if (!isWhitespace(character) || "\n".equals(character) || "\r".equals(character)) {
-                    return input.substring(i, startOfTag);
+        /**
+         * Returns the offset of the whitespace that precedes the tag and that is on the same line as the tag.
+         */
+        private int calculateStartOfIndent(String pom, int startOfLine, int startOfTag) {
+            int i = startOfTag;
+            while (i > startOfLine && Character.isWhitespace(pom.charAt(i - 1))) {
+                --i;
+            }
+            return i;
+        }
+
+        private int countTabs(String pom, int start, int end) {
+            int numTabs = 0;
+            for (int i = start; i < end; ++i) {
+                if (pom.charAt(i) == '\t') {
+                    ++numTabs;
                 }
             }
-            return input;
+            return numTabs;
         }
 
-        private String getPrecedingText(String pom, int start, int[] ends) {
+        /**
+         * Returns the offset of the text between the given node and the end of the node that precedes it, or the
+         * offset of the node itself if no node precedes it.
+         */
+        private int getStartOfPrecedingText(int start, int[] ends) {
             int startPrecedingText = -1;
             for (int end : ends) {
                 if (end < start) {
                     startPrecedingText = max(startPrecedingText, end);
                 }
             }
-            if (startPrecedingText != -1) {
-                return pom.substring(startPrecedingText, start);
-            } else {
-                return "";
-            }
-        }
-
-        private void addTextIfNotEmpty(StringBuilder output, String indent, String text, Format format) {
-            String trimmedText = text.trim();
-            if (trimmedText.length() != 0) {
-                output.append(format.getLineSeparator());
-                output.append(indent);
-                output.append(trimmedText);
-            }
-        }
-
-        private int getPosOfNextEvent(XMLEventReader reader) throws XMLStreamException {
-            return reader.peek().getLocation().getCharacterOffset();
-        }
-
-        private String substringBeforeLast(String str, String separator) {
-            int endIndex = str.lastIndexOf(separator);
-            return str.substring(0, endIndex);
+            return startPrecedingText != -1 ? startPrecedingText : start;
         }
 
-        private String substringAfterLast(String str, String separator) {
-            int beginIndex = str.lastIndexOf(separator) + 1;
-            return str.substring(beginIndex);
+        private void addTextIfNotEmpty(
+                PieceText output, String indent, SectionText text, int start, int end, Format format) {
+            text.appendTrimmed(output, format.getLineSeparator(), indent, start, end);
         }
     }
 
-    private static class NodeGroup {
+    static class NodeGroup {
         final List<String> nodes;
 
         NodeGroup(String... nodes) {
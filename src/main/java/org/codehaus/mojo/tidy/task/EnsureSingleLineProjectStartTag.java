@@ -21,22 +21,19 @@ package org.codehaus.mojo.tidy.task;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.XMLEvent;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 
 import org.codehaus.plexus.util.StringUtils;
 
-import static org.codehaus.mojo.tidy.task.XMLEventReaderFactory.createEventReaderForPom;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 
 class EnsureSingleLineProjectStartTag implements TidyTask {
     private static final String PROJECT_START_TAG = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\" "
@@ -57,77 +54,50 @@ class EnsureSingleLineProjectStartTag implements TidyTask {
                     + "  xsi:schemaLocation=\"http://maven.apache.org/POM/4.1.0 https://maven.apache.org/xsd/maven-4.1.0.xsd\"";
 
     @Override
-    public String tidyPom(String pom, Format format) throws XMLStreamException {
-        final String modelVersion = identifyModelVersion(pom);
+    public void tidyPom(PomDocument pom) throws XMLStreamException {
+        PomEventCursor cursor = pom.createEventCursor();
+        findProjectStartElement(cursor);
+        int start = cursor.getStartOffset();
+        int nextChar = cursor.getEndOffset();
+        Map<QName, String> projectAttributes = getAttributes(cursor, PROJECT_4_1_ATTRIBUTES);
+        final String modelVersion = resolveModelVersion(cursor);
+        String startTag;
         if ("4.1.0".equals(modelVersion)) {
-            return tidy41Pom(pom);
-        }
-        return tidy40Pom(pom);
-    }
-
-    private String tidy40Pom(String pom) throws XMLStreamException {
-        XMLEventReader eventReader = createEventReaderForPom(pom);
-        try {
-            return tidyProjectStartTag(pom, eventReader, PROJECT_START_TAG, PROJECT_4_0_ATTRIBUTES);
-        } finally {
-            eventReader.close();
-        }
-    }
-
-    private String tidy41Pom(String pom) throws XMLStreamException {
-        XMLEventReader eventReader = createEventReaderForPom(pom);
-        try {
-            return tidyProjectStartTag(pom, eventReader, PROJECT_4_1_START_TAG, PROJECT_4_1_ATTRIBUTES);
-        } finally {
-            eventReader.close();
-        }
-    }
-
-    private String identifyModelVersion(String pom) throws XMLStreamException {
-        XMLEventReader eventReader = createEventReaderForPom(pom);
-        try {
-            return identifyModelVersion(eventReader);
-        } finally {
-            eventReader.close();
+            startTag = createProjectStartTag(projectAttributes, PROJECT_4_1_START_TAG, PROJECT_4_1_ATTRIBUTES);
+        } else {
+            startTag = createProjectStartTag(projectAttributes, PROJECT_START_TAG, PROJECT_4_0_ATTRIBUTES);
         }
+        pom.replace(start, nextChar, startTag, "single line project start tag");
     }
 
-    private String identifyModelVersion(XMLEventReader eventReader) throws XMLStreamException {
-        XMLEvent event = eventReader.nextEvent();
-        while (null != event) {
-            if (event.isStartElement()) {
-                if (event.asStartElement().getName().getLocalPart().equals("project")) {
-                    return resolveModelVersion(eventReader);
-                }
-                event = skipNestedContent(eventReader);
-            } else {
-                event = eventReader.nextEvent();
+    private void findProjectStartElement(PomEventCursor cursor) {
+        while (cursor.hasNext()) {
+            if (cursor.next() == START_ELEMENT && cursor.getLocalName().equals("project")) {
+                return;
             }
         }
-        return null;
+        throw new IllegalArgumentException("The POM has no project node.");
     }
 
     /**
-     * Moves forward the specified eventReader until it meet the end tag for the current start tag.
+     * Moves forward the specified cursor until it meets the end tag for the current start tag.
      *
      * PREREQUISITE: at START of an element
-     * RESULT: end event or null
+     * RESULT: at the end element
      */
-    private XMLEvent skipNestedContent(XMLEventReader eventReader) throws XMLStreamException {
+    private void skipNestedContent(PomEventCursor cursor) {
         int nestedSize = 0;
-        XMLEvent xmlEvent = eventReader.nextEvent();
-        while (xmlEvent != null) {
-            if (xmlEvent.isEndElement()) {
+        while (cursor.hasNext()) {
+            int type = cursor.next();
+            if (type == END_ELEMENT) {
                 if (nestedSize == 0) {
-                    return xmlEvent;
+                    return;
                 }
                 nestedSize--;
-            } else if (xmlEvent.isStartElement()) {
+            } else if (type == START_ELEMENT) {
                 nestedSize++;
             }
-            xmlEvent = eventReader.nextEvent();
         }
-        return null;
     }
 
     /**
@@ -135,65 +105,41 @@ class EnsureSingleLineProjectStartTag implements TidyTask {
      *
      * PREREQUISITES: at the START position of an XML node which may have a direct child whose name would be modelVersion
      */
-    private String resolveModelVersion(XMLEventReader eventReader) throws XMLStreamException {
-        XMLEvent xmlEvent = eventReader.nextEvent();
-        while (xmlEvent != null) {
-            if (xmlEvent.isStartElement()) {
-                if (xmlEvent.asStartElement().getName().getLocalPart().equals("modelVersion")) {
-                    return eventReader.getElementText();
+    private String resolveModelVersion(PomEventCursor cursor) throws XMLStreamException {
+        while (cursor.hasNext()) {
+            int type = cursor.next();
+            if (type == START_ELEMENT) {
+                if (cursor.getLocalName().equals("modelVersion")) {
+                    return cursor.getElementText();
                 } else {
-                    xmlEvent = skipNestedContent(eventReader);
+                    skipNestedContent(cursor);
                 }
-            } else if (xmlEvent.isEndElement()) {
+            } else if (type == END_ELEMENT) {
                 return null;
             }
-            xmlEvent = eventReader.nextEvent();
         }
         return null;
     }
 
-    private String tidyProjectStartTag(
-            String pom, XMLEventReader eventReader, String projectStartTag, Collection<QName> additionalProperties)
-            throws XMLStreamException {
-        while (eventReader.hasNext()) {
-            XMLEvent event = eventReader.nextEvent();
-            if (event.isStartElement()
-                    && event.asStartElement().getName().getLocalPart().equals("project")) {
-                return replaceProjectStartTag(pom, eventReader, event, projectStartTag, additionalProperties);
+    /**
+     * Returns the values of the given attributes of the current start element.
+     */
+    private Map<QName, String> getAttributes(PomEventCursor cursor, Collection<QName> attributes) {
+        Map<QName, String> values = new HashMap<>(attributes.size());
+        for (QName attribute : attributes) {
+            String value = cursor.getAttributeValue(attribute.getNamespaceURI(), attribute.getLocalPart());
+            if (value != null) {
+                values.put(attribute, value);
             }
         }
-        throw new IllegalArgumentException("The POM has no project node.");
+        return values;
     }
 
-    private String replaceProjectStartTag(
-            String pom,
-            XMLEventReader eventReader,
-            XMLEvent event,
-            String startTag,
-            Collection<QName> additionalProperties)
-            throws XMLStreamException {
-        int start = event.getLocation().getCharacterOffset();
-        final Map<QName, String> additionalPropertiesMap;
-        if (additionalProperties.isEmpty()) {
-            additionalPropertiesMap = Collections.emptyMap();
-        } else {
-            additionalPropertiesMap = new HashMap<>(additionalProperties.size());
-            final Iterator<Attribute> attributeIterator = event.asStartElement().getAttributes();
-            while (attributeIterator.hasNext()) {
-                final Attribute currentAttribute = attributeIterator.next();
-                final QName attributeQualifiedName = currentAttribute.getName();
-                if (additionalProperties.contains(attributeQualifiedName)) {
-                    additionalPropertiesMap.put(attributeQualifiedName, currentAttribute.getValue());
-                }
-            }
-        }
-        int nextChar = eventReader.nextEvent().getLocation().getCharacterOffset();
-        if (additionalPropertiesMap.isEmpty()) {
-            return pom.substring(0, start) + startTag + ">" + pom.substring(nextChar);
-        }
-        StringBuilder result = new StringBuilder(pom.substring(0, start)).append(startTag);
+    private String createProjectStartTag(
+            Map<QName, String> projectAttributes, String startTag, Collection<QName> additionalProperties) {
+        StringBuilder result = new StringBuilder(startTag);
         for (QName additionalProperty : additionalProperties) {
-            final String value = additionalPropertiesMap.get(additionalProperty);
+            final String value = projectAttributes.get(additionalProperty);
             if (value != null) {
                 result.append(' ');
                 if (additionalProperty.getPrefix().equals(XMLConstants.DEFAULT_NS_PREFIX)) {
@@ -204,6 +150,6 @@ class EnsureSingleLineProjectStartTag implements TidyTask {
                 result.append('=').append(StringUtils.quoteAndEscape(value, '"', new char[] {'"', '\\'}, '\\', true));
             }
         }
-        return result.append('>').append(pom.substring(nextChar)).toString();
+        return result.append('>').toString();
     }
 }
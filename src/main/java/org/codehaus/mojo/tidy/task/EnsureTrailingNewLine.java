@@ -23,7 +23,12 @@ import javax.xml.stream.XMLStreamException;
 
 class EnsureTrailingNewLine implements TidyTask {
     @Override
-    public String tidyPom(String pom, Format format) throws XMLStreamException {
-        return pom.trim() + format.getLineSeparator();
+    public void tidyPom(PomDocument pom) throws XMLStreamException {
+        String text = pom.getPom();
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        pom.replace(end, text.length(), pom.getFormat().getLineSeparator(), "trailing line break");
     }
 }
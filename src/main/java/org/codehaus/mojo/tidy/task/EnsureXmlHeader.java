@@ -23,11 +23,13 @@ import javax.xml.stream.XMLStreamException;
 
 class EnsureXmlHeader implements TidyTask {
     @Override
-    public String tidyPom(String pom, Format format) throws XMLStreamException {
-        if (pom.startsWith("<?xml")) {
-            return pom;
-        } else {
-            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + format.getLineSeparator() + pom;
+    public void tidyPom(PomDocument pom) throws XMLStreamException {
+        if (!pom.getPom().startsWith("<?xml")) {
+            pom.insert(
+                    0,
+                    "<?xml version=\"1.0\" encoding=\"" + pom.getEncoding().getDeclaredName() + "\"?>"
+                            + pom.getFormat().getLineSeparator(),
+                    "XML declaration");
         }
     }
 }
@@ -20,9 +20,10 @@ package org.codehaus.mojo.tidy.task;
  */
 
 /**
- * Specification of the output format used by the Tidy plugin.
+ * Specification of the output format used by the Tidy plugin. A format is created by
+ * {@link FormatIdentifier#identify(String, LineSeparator)}.
  */
-class Format {
+public class Format {
     private final String lineSeparator;
 
     /**
@@ -39,7 +40,7 @@ class Format {
      *
      * @return the characters that should be used as line separator.
      */
-    String getLineSeparator() {
+    public String getLineSeparator() {
         return lineSeparator;
     }
 }
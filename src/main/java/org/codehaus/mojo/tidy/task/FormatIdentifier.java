@@ -19,27 +19,79 @@ package org.codehaus.mojo.tidy.task;
  * under the License.
  */
 
-import java.util.List;
-
-import static java.util.Arrays.asList;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Identifies the output format for a given POM. It tries to find a
- * format that is similar to the current format.
+ * format that is similar to the current format, unless it is configured
+ * to always use the same line separator.
+ * <pre>
+ * Format format = FormatIdentifier.identify(pom, null);
+ * </pre>
  */
-class FormatIdentifier {
-    private static final List<String> LINE_SEPARATORS = asList("\r\n", "\n", "\r");
+public class FormatIdentifier {
+    private static final Map<LineSeparator, Format> FORMATS = new EnumMap<>(LineSeparator.class);
+
+    static {
+        for (LineSeparator lineSeparator : LineSeparator.values()) {
+            FORMATS.put(lineSeparator, new Format(lineSeparator.getCharacters()));
+        }
+    }
+
+    private static final FormatIdentifier DETECTING = new FormatIdentifier();
+
+    private final Format forcedFormat;
 
     /**
-     * Identifies the output format for the given POM.
+     * Creates a format identifier that uses the line separator of the POM.
+     */
+    FormatIdentifier() {
+        this(null);
+    }
+
+    /**
+     * Creates a format identifier.
+     *
+     * @param lineSeparator the line separator of every POM or <code>null</code> for using the line separator of
+     *                      the POM.
+     */
+    FormatIdentifier(LineSeparator lineSeparator) {
+        this.forcedFormat = lineSeparator == null ? null : FORMATS.get(lineSeparator);
+    }
+
+    /**
+     * Identifies the output format for the given POM. The line separator of the POM is the one that ends its first
+     * line, so only the first line is read. A forced line separator skips the detection.
+     *
+     * @param pom                 the POM.
+     * @param forcedLineSeparator the line separator of the format or <code>null</code> for using the line separator
+     *                            of the POM.
+     * @return the output format. The formats are shared and immutable.
+     * @throws IllegalArgumentException if no line separator is forced and the POM has no line separator.
+     */
+    public static Format identify(String pom, LineSeparator forcedLineSeparator) {
+        return forcedLineSeparator == null ? DETECTING.identifyFormat(pom) : FORMATS.get(forcedLineSeparator);
+    }
+
+    /**
+     * Identifies the output format for the given POM. The line separator of the POM is the one that ends its first
+     * line, so only the first line is read.
      *
      * @param pom the POM.
      * @return the output format.
      */
     Format identifyFormat(String pom) {
-        for (String separator : LINE_SEPARATORS) {
-            if (pom.contains(separator)) {
-                return new Format(separator);
+        if (forcedFormat != null) {
+            return forcedFormat;
+        }
+        for (int i = 0; i < pom.length(); ++i) {
+            char c = pom.charAt(i);
+            if (c == '\n') {
+                return FORMATS.get(LineSeparator.LF);
+            } else if (c == '\r') {
+                boolean crlf = i + 1 < pom.length() && pom.charAt(i + 1) == '\n';
+                return FORMATS.get(crlf ? LineSeparator.CRLF : LineSeparator.CR);
             }
         }
 
@@ -19,24 +19,37 @@ package org.codehaus.mojo.tidy.task;
  * under the License.
  */
 
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamException;
+/**
+ * The line separators that the Tidy plugin can write.
+ */
+public enum LineSeparator {
+    /**
+     * A line feed, which is used by Unix and macOS.
+     */
+    LF("\n"),
 
-import java.io.StringReader;
+    /**
+     * A carriage return followed by a line feed, which is used by Windows.
+     */
+    CRLF("\r\n"),
 
-import org.codehaus.stax2.XMLInputFactory2;
+    /**
+     * A carriage return, which has been used by classic Mac OS.
+     */
+    CR("\r");
 
-class XMLEventReaderFactory {
-    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private final String characters;
 
-    static XMLEventReader createEventReaderForPom(String pom) throws XMLStreamException {
-        return XML_INPUT_FACTORY.createXMLEventReader(new StringReader(pom));
+    LineSeparator(String characters) {
+        this.characters = characters;
     }
 
-    private static XMLInputFactory createInputFactory() {
-        XMLInputFactory inputFactory = XMLInputFactory2.newInstance();
-        inputFactory.setProperty(XMLInputFactory2.P_PRESERVE_LOCATION, true);
-        return inputFactory;
+    /**
+     * Returns the characters of the line separator.
+     *
+     * @return the characters of the line separator.
+     */
+    public String getCharacters() {
+        return characters;
     }
 }
@@ -0,0 +1,178 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.mojo.tidy.task.EnsureOrderAndIndent.NodeGroup;
+import org.codehaus.mojo.tidy.task.EnsureOrderAndIndent.SectionSorter;
+
+/**
+ * The rules that define the order of the elements of a POM. Every rule has a scope, which is the path of the
+ * elements whose children are sorted, and the order of the children. Rules are defined by a text with one rule per
+ * line:
+ *
+ * <pre>
+ * # The order of the children of an execution.
+ * execution = id, phase | goals | inherited, configuration
+ * </pre>
+ *
+ * A scope that starts with a slash is the complete path of the element, any other scope is the end of its path.
+ * The children are listed in their order. A <code>|</code> separates groups of children and an empty line is put
+ * between children of different groups. A rule replaces the default rule of the same scope, all other default rules
+ * stay in effect. Children that are not listed keep their position relative to the next listed child.
+ * <p>
+ * Ordering rules are immutable. A definition is compiled only once per JVM and the compiled rules are shared by all
+ * POMs that are tidied with the same definition.
+ */
+public final class OrderingRules {
+    private static final int[] NO_SORTERS = new int[0];
+
+    private static final OrderingRules DEFAULT = new OrderingRules(EnsureOrderAndIndent.SECTION_SORTERS);
+
+    private static final ConcurrentMap<String, OrderingRules> COMPILED_RULES = new ConcurrentHashMap<>();
+
+    final List<SectionSorter> sorters;
+
+    private final Map<String, int[]> sortersByElementName;
+
+    private OrderingRules(List<SectionSorter> sorters) {
+        this.sorters = Collections.unmodifiableList(new ArrayList<>(sorters));
+        this.sortersByElementName = indexSortersByElementName(this.sorters);
+    }
+
+    /**
+     * Returns the default rules, which is the canonical order of the POM.
+     *
+     * @return the default rules.
+     */
+    public static OrderingRules getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the default rules extended by the rules of the given definition.
+     *
+     * @param definition the definition of the additional rules.
+     * @return the compiled rules.
+     * @throws IllegalArgumentException if the definition is not valid.
+     */
+    public static OrderingRules compile(String definition) {
+        OrderingRules rules = COMPILED_RULES.get(definition);
+        if (rules == null) {
+            List<SectionSorter> customSorters = parseRules(definition);
+            rules = customSorters.isEmpty() ? DEFAULT : new OrderingRules(addDefaultSorters(customSorters));
+            COMPILED_RULES.putIfAbsent(definition, rules);
+        }
+        return rules;
+    }
+
+    /**
+     * Returns the indexes of the sorters whose scope ends with an element of the given name in the order of their
+     * precedence.
+     */
+    int[] getCandidateSorters(String elementName) {
+        int[] candidates = sortersByElementName.get(elementName);
+        return candidates == null ? NO_SORTERS : candidates;
+    }
+
+    private static List<SectionSorter> parseRules(String definition) {
+        Map<String, SectionSorter> sorters = new LinkedHashMap<>();
+        String[] lines = definition.split("\r\n|\n|\r");
+        for (int i = 0; i < lines.length; ++i) {
+            String line = lines[i].trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                SectionSorter sorter = parseRule(line, i + 1);
+                sorters.put(sorter.scope.scope, sorter);
+            }
+        }
+        return new ArrayList<>(sorters.values());
+    }
+
+    /**
+     * Adds the default sorters whose scope is not overridden by a custom sorter. The custom sorters come first, so
+     * that they take precedence over a default sorter with a more general scope.
+     */
+    private static List<SectionSorter> addDefaultSorters(List<SectionSorter> customSorters) {
+        Set<String> customScopes = new HashSet<>();
+        for (SectionSorter sorter : customSorters) {
+            customScopes.add(sorter.scope.scope);
+        }
+        List<SectionSorter> sorters = new ArrayList<>(customSorters);
+        for (SectionSorter sorter : EnsureOrderAndIndent.SECTION_SORTERS) {
+            if (!customScopes.contains(sorter.scope.scope)) {
+                sorters.add(sorter);
+            }
+        }
+        return sorters;
+    }
+
+    private static SectionSorter parseRule(String rule, int lineNumber) {
+        int separator = rule.indexOf('=');
+        String scope = separator == -1 ? "" : rule.substring(0, separator).trim();
+        if (scope.isEmpty() || scope.equals("/") || scope.endsWith("/") || scope.contains("//")) {
+            throw new IllegalArgumentException(
+                    "The ordering rule in line " + lineNumber + " has no valid scope: " + rule);
+        }
+        Set<String> names = new HashSet<>();
+        List<NodeGroup> groups = new ArrayList<>();
+        for (String group : rule.substring(separator + 1).split("\\|")) {
+            String[] nodes = group.trim().split("[\\s,]+");
+            if (nodes.length == 1 && nodes[0].isEmpty()) {
+                throw new IllegalArgumentException("The ordering rule in line " + lineNumber
+                        + " has an empty group of elements: " + rule);
+            }
+            for (String node : nodes) {
+                if (!names.add(node)) {
+                    throw new IllegalArgumentException("The ordering rule in line " + lineNumber
+                            + " lists the element " + node + " more than once: " + rule);
+                }
+            }
+            groups.add(new NodeGroup(nodes));
+        }
+        return new SectionSorter(scope, groups.toArray(new NodeGroup[0]));
+    }
+
+    private static Map<String, int[]> indexSortersByElementName(List<SectionSorter> sorters) {
+        Map<String, List<Integer>> indexes = new HashMap<>();
+        for (int i = 0; i < sorters.size(); ++i) {
+            String[] names = sorters.get(i).scope.names;
+            indexes.computeIfAbsent(names[names.length - 1], name -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> sortersByElementName = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : indexes.entrySet()) {
+            int[] sorterIndexes = new int[entry.getValue().size()];
+            for (int i = 0; i < sorterIndexes.length; ++i) {
+                sorterIndexes[i] = entry.getValue().get(i);
+            }
+            sortersByElementName.put(entry.getKey(), sorterIndexes);
+        }
+        return sortersByElementName;
+    }
+}
@@ -0,0 +1,276 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * A text that is a sequence of pieces of other texts, e.g. of ranges of the original POM and of formatted sections.
+ * Appending another piece text copies references to its pieces, never its characters, so a formatted section is not
+ * copied into the section that encloses it. Short strings like line separators and indents are copied into a buffer
+ * of the text instead, because a piece of its own would cost more than the characters. The buffer is only appended
+ * to, so other texts can share its pieces, too. All characters are copied once more, when the text is written.
+ */
+final class PieceText implements CharSequence {
+    /**
+     * The length of the shortest range of a string that becomes a piece of its own.
+     */
+    private static final int MIN_PIECE_LENGTH = 64;
+
+    private CharSequence[] sources = new CharSequence[4];
+
+    private int[] starts = new int[4];
+
+    /**
+     * The offsets of the pieces in this text. The offset after the last piece is the length of the text.
+     */
+    private int[] offsets = new int[5];
+
+    private int numPieces;
+
+    private StringBuilder buffer;
+
+    /**
+     * Returns a piece text with the given characters.
+     *
+     * @param text the characters.
+     * @return the text itself if it is a piece text or a piece text with a single piece otherwise.
+     */
+    static PieceText of(CharSequence text) {
+        if (text instanceof PieceText) {
+            return (PieceText) text;
+        }
+        PieceText pieceText = new PieceText();
+        if (text.length() > 0) {
+            pieceText.addPiece(text.toString(), 0, text.length());
+        }
+        return pieceText;
+    }
+
+    /**
+     * Appends a string.
+     *
+     * @param text the string.
+     * @return this text.
+     */
+    PieceText append(String text) {
+        return append(text, 0, text.length());
+    }
+
+    /**
+     * Appends a range of a string.
+     *
+     * @param text  the string.
+     * @param start the offset of the first character of the range.
+     * @param end   the offset after the last character of the range.
+     * @return this text.
+     */
+    PieceText append(String text, int start, int end) {
+        if (start >= end) {
+            return this;
+        } else if (end - start >= MIN_PIECE_LENGTH) {
+            ensureCapacity(numPieces + 1);
+            addPiece(text, start, end - start);
+        } else if (numPieces > 0
+                && sources[numPieces - 1] == buffer
+                && starts[numPieces - 1] + offsets[numPieces] - offsets[numPieces - 1] == buffer.length()) {
+            buffer.append(text, start, end);
+            offsets[numPieces] += end - start;
+        } else {
+            if (buffer == null) {
+                buffer = new StringBuilder();
+            }
+            ensureCapacity(numPieces + 1);
+            addPiece(buffer, buffer.length(), end - start);
+            buffer.append(text, start, end);
+        }
+        return this;
+    }
+
+    /**
+     * Appends a range of another piece text. Only the references to the pieces are copied.
+     *
+     * @param text  the other text.
+     * @param start the offset of the first character of the range.
+     * @param end   the offset after the last character of the range.
+     * @return this text.
+     */
+    PieceText append(PieceText text, int start, int end) {
+        if (start >= end) {
+            return this;
+        }
+        int firstPiece = text.findPiece(start);
+        int lastPiece = text.findPiece(end - 1);
+        ensureCapacity(numPieces + lastPiece - firstPiece + 1);
+        for (int piece = firstPiece; piece <= lastPiece; ++piece) {
+            int pieceStart = Math.max(start, text.offsets[piece]);
+            int pieceEnd = Math.min(end, text.offsets[piece + 1]);
+            int startInSource = text.starts[piece] + pieceStart - text.offsets[piece];
+            addPiece(text.sources[piece], startInSource, pieceEnd - pieceStart);
+        }
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > sources.length) {
+            int newCapacity = Math.max(capacity, 2 * sources.length);
+            sources = copyOf(sources, newCapacity);
+            starts = copyOf(starts, newCapacity);
+            offsets = copyOf(offsets, newCapacity + 1);
+        }
+    }
+
+    private void addPiece(CharSequence source, int start, int length) {
+        sources[numPieces] = source;
+        starts[numPieces] = start;
+        offsets[numPieces + 1] = offsets[numPieces] + length;
+        ++numPieces;
+    }
+
+    /**
+     * Appends another piece text. Only the references to the pieces are copied.
+     *
+     * @param text the other text.
+     * @return this text.
+     */
+    PieceText append(PieceText text) {
+        return append(text, 0, text.length());
+    }
+
+    /**
+     * Removes the whitespace at the start and at the end of this text, like {@link String#trim()}. The text is
+     * trimmed in place, because the texts that are trimmed are never used otherwise.
+     *
+     * @return this text.
+     */
+    PieceText trim() {
+        int start = 0;
+        int end = length();
+        while (start < end && charAt(start) <= ' ') {
+            ++start;
+        }
+        while (end > start && charAt(end - 1) <= ' ') {
+            --end;
+        }
+        if (start == end) {
+            numPieces = 0;
+        } else if (start > 0 || end < length()) {
+            int firstPiece = findPiece(start);
+            int lastPiece = findPiece(end - 1);
+            starts[firstPiece] += start - offsets[firstPiece];
+            offsets[lastPiece + 1] = end;
+            numPieces = lastPiece - firstPiece + 1;
+            System.arraycopy(sources, firstPiece, sources, 0, numPieces);
+            System.arraycopy(starts, firstPiece, starts, 0, numPieces);
+            for (int piece = 0; piece <= numPieces; ++piece) {
+                offsets[piece] = offsets[firstPiece + piece] - start;
+            }
+            offsets[0] = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Compares this text with a string at the given offset.
+     *
+     * @param text   the string.
+     * @param offset the offset of the string that is compared with the first character of this text.
+     * @return the offset of the first character of this text that differs from the string or -1 if the string
+     *         contains this text at the offset.
+     */
+    int findDifference(String text, int offset) {
+        for (int piece = 0; piece < numPieces; ++piece) {
+            CharSequence source = sources[piece];
+            int textOffset = offset + offsets[piece];
+            int length = offsets[piece + 1] - offsets[piece];
+            if (source != text || starts[piece] != textOffset) {
+                for (int i = 0; i < length; ++i) {
+                    int textIndex = textOffset + i;
+                    if (textIndex == text.length() || source.charAt(starts[piece] + i) != text.charAt(textIndex)) {
+                        return offsets[piece] + i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the characters of this text.
+     *
+     * @param output the output.
+     * @throws IOException if the output cannot be written.
+     */
+    void appendTo(Appendable output) throws IOException {
+        for (int piece = 0; piece < numPieces; ++piece) {
+            output.append(sources[piece], starts[piece], starts[piece] + offsets[piece + 1] - offsets[piece]);
+        }
+    }
+
+    @Override
+    public int length() {
+        return offsets[numPieces];
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException("The index " + index + " is not in the text.");
+        }
+        int piece = findPiece(index);
+        return sources[piece].charAt(starts[piece] + index - offsets[piece]);
+    }
+
+    @Override
+    public PieceText subSequence(int start, int end) {
+        return new PieceText().append(this, start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (numPieces == 1 && sources[0] instanceof String && starts[0] == 0 && offsets[1] == sources[0].length()) {
+            return (String) sources[0];
+        }
+        StringBuilder text = new StringBuilder(length());
+        for (int piece = 0; piece < numPieces; ++piece) {
+            text.append(sources[piece], starts[piece], starts[piece] + offsets[piece + 1] - offsets[piece]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the piece that contains the character at the given index.
+     */
+    private int findPiece(int index) {
+        int low = 0;
+        int high = numPieces - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
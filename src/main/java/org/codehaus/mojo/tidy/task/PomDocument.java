@@ -0,0 +1,653 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Arrays.copyOf;
+
+/**
+ * A POM that is tidied by several {@link TidyTask}s. The POM is parsed only once and all tasks share the parsed
+ * events. The tasks do not modify the POM directly. They record edits at offsets of the original POM and the edits
+ * are applied all at once by {@link #applyEdits()}.
+ */
+class PomDocument {
+    private final String pom;
+
+    private final Format format;
+
+    private PomEvents events;
+
+    private int[] lineStarts = new int[64];
+
+    private int numLines = 1;
+
+    private int scannedLength;
+
+    private final List<Edit> edits = new ArrayList<>();
+
+    private final TidyMetrics metrics;
+
+    private final LongAdder workerAllocatedBytes = new LongAdder();
+
+    private final TidyLimits limits;
+
+    private final long startNanos;
+
+    private final List<PomEventCursor> cursors = new ArrayList<>();
+
+    private boolean recordingViolations;
+
+    private PomEncoding encoding = PomEncoding.getDefault();
+
+    /**
+     * Creates a new document.
+     *
+     * @param pom    the POM as string.
+     * @param format the expected format of the POM.
+     */
+    PomDocument(String pom, Format format) {
+        this(pom, format, null);
+    }
+
+    /**
+     * Creates a new document whose tasks are measured.
+     *
+     * @param pom     the POM as string.
+     * @param format  the expected format of the POM.
+     * @param metrics the metrics that record the measurements or <code>null</code> if nothing is measured.
+     */
+    PomDocument(String pom, Format format, TidyMetrics metrics) {
+        this(pom, format, metrics, TidyLimits.unlimited());
+    }
+
+    /**
+     * Creates a new document whose tasks are measured and limited. The time limit starts now.
+     *
+     * @param pom     the POM as string.
+     * @param format  the expected format of the POM.
+     * @param metrics the metrics that record the measurements or <code>null</code> if nothing is measured.
+     * @param limits  the limits of the work for the POM.
+     * @throws TidyLimitExceededException if the POM is longer than the limit.
+     */
+    PomDocument(String pom, Format format, TidyMetrics metrics, TidyLimits limits) {
+        limits.checkLength(pom.length());
+        this.pom = pom;
+        this.format = format;
+        this.metrics = metrics;
+        this.limits = limits;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the original POM.
+     *
+     * @return the original POM.
+     */
+    String getPom() {
+        return pom;
+    }
+
+    /**
+     * Returns the expected format of the POM.
+     *
+     * @return the expected format of the POM.
+     */
+    Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the metrics that record the measurements of the tasks.
+     *
+     * @return the metrics or <code>null</code> if nothing is measured.
+     */
+    TidyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Records bytes that a worker thread has allocated for a task, e.g. while it formats sections in parallel. The
+     * thread that runs the task measures only its own allocations and adds these.
+     *
+     * @param bytes the number of allocated bytes.
+     */
+    void recordWorkerAllocatedBytes(long bytes) {
+        workerAllocatedBytes.add(bytes);
+    }
+
+    /**
+     * Returns the number of bytes that worker threads have allocated for the tasks so far.
+     *
+     * @return the number of bytes.
+     */
+    long getWorkerAllocatedBytes() {
+        return workerAllocatedBytes.sum();
+    }
+
+    /**
+     * Returns the encoding of the POM file, e.g. for declaring it.
+     *
+     * @return the encoding.
+     */
+    PomEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Sets the encoding of the POM file. It is UTF-8 by default.
+     *
+     * @param encoding the encoding.
+     */
+    void setEncoding(PomEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Makes the tasks record the violations of their rules in detail, e.g. every nested section that changes when a
+     * section is formatted. The details are only needed for reporting the violations and are not recorded otherwise.
+     */
+    void recordViolations() {
+        recordingViolations = true;
+    }
+
+    /**
+     * Returns whether the tasks record the violations of their rules in detail.
+     *
+     * @return <code>true</code> if the violations are recorded.
+     */
+    boolean isRecordingViolations() {
+        return recordingViolations;
+    }
+
+    /**
+     * Checks that the time limit of the POM has not been exceeded yet. The cursors check it while they are moved.
+     *
+     * @throws TidyLimitExceededException if the time limit has been exceeded.
+     */
+    void checkTime() {
+        limits.checkTime(startNanos);
+    }
+
+    /**
+     * Returns the number of events that have been read by all cursors of this document so far. The cursors may be
+     * used by several threads, but they must not be used while the events are counted.
+     *
+     * @return the number of events.
+     */
+    long getNumberOfReadEvents() {
+        long numReadEvents = 0;
+        synchronized (cursors) {
+            for (PomEventCursor cursor : cursors) {
+                numReadEvents += cursor.getNumberOfReadEvents();
+            }
+        }
+        return numReadEvents;
+    }
+
+    /**
+     * Returns the offset of the first character of the line that contains the given offset. A line starts after a
+     * line feed or after a carriage return that is not followed by a line feed. The offsets of the lines are
+     * computed once and are shared by all tasks. They are computed only up to the line that is needed, so that a
+     * task that reads only the start of the POM does not scan all of it.
+     *
+     * @param offset an offset of the original POM.
+     * @return the offset of the first character of the line.
+     */
+    int getStartOfLine(int offset) {
+        int line = getLineNumber(offset);
+        return lineStarts[line - 1];
+    }
+
+    /**
+     * Returns the number of the line that contains the given offset, starting with 1.
+     */
+    int getLineNumber(int offset) {
+        findLineStarts(offset);
+        int low = 0;
+        int high = numLines - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (lineStarts[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low + 1;
+    }
+
+    /**
+     * Finds the starts of the lines until the start of the line after the given offset or the end of the POM.
+     */
+    private void findLineStarts(int offset) {
+        int i = scannedLength;
+        while (i < pom.length() && lineStarts[numLines - 1] <= offset) {
+            char c = pom.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == pom.length() || pom.charAt(i + 1) != '\n'))) {
+                if (numLines == lineStarts.length) {
+                    lineStarts = copyOf(lineStarts, 2 * numLines);
+                }
+                lineStarts[numLines++] = i + 1;
+            }
+            ++i;
+        }
+        scannedLength = i;
+    }
+
+    /**
+     * Returns a cursor over the events of the original POM. The POM is parsed when the first cursor is created and
+     * all further cursors replay the same events. Once the POM has been parsed, cursors can be created and used by
+     * several threads.
+     *
+     * @return a new cursor at the start of the document.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    PomEventCursor createEventCursor() throws XMLStreamException {
+        openEvents().parseAll();
+        return registerCursor(new PomEventCursor(this, events));
+    }
+
+    /**
+     * Returns a cursor over the events of the original POM that have been parsed so far. Further events are parsed
+     * by {@link #parseNextEvent()}, so that a task that needs only the start of the POM does not parse all of it. The
+     * cursor must not be shared by several threads.
+     *
+     * @return a new cursor at the start of the document.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    PomEventCursor createPartialEventCursor() throws XMLStreamException {
+        return registerCursor(new PomEventCursor(this, openEvents()));
+    }
+
+    /**
+     * Parses the next event of the original POM for the cursors that have been created by
+     * {@link #createPartialEventCursor()}.
+     *
+     * @return <code>false</code> if all events have already been parsed.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    boolean parseNextEvent() throws XMLStreamException {
+        return openEvents().parseNext();
+    }
+
+    private PomEvents openEvents() throws XMLStreamException {
+        if (events == null) {
+            events = PomEvents.open(pom, limits, startNanos);
+        }
+        return events;
+    }
+
+    private PomEventCursor registerCursor(PomEventCursor cursor) {
+        synchronized (cursors) {
+            cursors.add(cursor);
+        }
+        return cursor;
+    }
+
+    /**
+     * Replaces the text between the given offsets of the original POM.
+     *
+     * @param start       the offset of the first character that is replaced.
+     * @param end         the offset after the last character that is replaced.
+     * @param replacement the new text. A {@link PieceText} is kept as it is and is not copied.
+     * @param rule        the rule that requires the edit, e.g. <code>order of /project</code>.
+     */
+    void replace(int start, int end, CharSequence replacement, String rule) {
+        replace(start, end, replacement, rule, null);
+    }
+
+    /**
+     * Replaces the text between the given offsets of the original POM. The edit is reported as the given violations
+     * instead of a single violation, e.g. a formatted section as the changes of the sections nested in it.
+     *
+     * @param start       the offset of the first character that is replaced.
+     * @param end         the offset after the last character that is replaced.
+     * @param replacement the new text. A {@link PieceText} is kept as it is and is not copied.
+     * @param rule        the rule that requires the edit, e.g. <code>order of /project</code>.
+     * @param violations  the violations as edits of the original POM within the edit or <code>null</code> if the
+     *                    edit is reported as a single violation.
+     */
+    void replace(int start, int end, CharSequence replacement, String rule, List<Edit> violations) {
+        PieceText text = PieceText.of(replacement);
+        if (end - start != text.length() || text.findDifference(pom, start) != -1) {
+            Edit edit = new Edit(start, end, text, rule);
+            edit.violations = violations;
+            edits.add(edit);
+        }
+    }
+
+    /**
+     * Inserts text at the given offset of the original POM.
+     *
+     * @param offset the offset of the original POM.
+     * @param text   the text that is inserted.
+     * @param rule   the rule that requires the edit.
+     */
+    void insert(int offset, String text, String rule) {
+        replace(offset, offset, text, rule);
+    }
+
+    /**
+     * Returns a view of the original POM with all recorded edits applied. The view shares the characters of the POM
+     * and of the edits, e.g. for parsing the tidy POM again without creating it.
+     *
+     * @return the tidy POM.
+     */
+    CharSequence getTidyPom() {
+        return createTidyPom();
+    }
+
+    private PieceText createTidyPom() {
+        PieceText tidyPom = new PieceText();
+        int pos = 0;
+        for (Edit edit : sortEdits()) {
+            tidyPom.append(pom, pos, edit.start);
+            tidyPom.append(edit.replacement);
+            pos = edit.end;
+        }
+        return tidyPom.append(pom, pos, pom.length());
+    }
+
+    /**
+     * Applies all recorded edits to the original POM.
+     *
+     * @return the tidy POM.
+     */
+    String applyEdits() {
+        return edits.isEmpty() ? pom : createTidyPom().toString();
+    }
+
+    /**
+     * Writes the original POM with all recorded edits applied to the given writer. Unlike {@link #applyEdits()}
+     * the tidy POM is never held in memory as a whole.
+     *
+     * @param writer the writer for the tidy POM.
+     * @throws IOException if the tidy POM cannot be written.
+     */
+    void writeEdits(Writer writer) throws IOException {
+        createTidyPom().appendTo(writer);
+    }
+
+    /**
+     * Returns the offset of the first character that differs between the original POM and the tidy POM. The tidy
+     * POM is compared with the original POM piece by piece and the comparison stops at the first difference, so the
+     * tidy POM is never created.
+     *
+     * @return the offset of the first difference or -1 if the tidy POM is the same as the original POM.
+     */
+    int findFirstDifference() {
+        int pos = 0;
+        int offset = 0;
+        for (Edit edit : sortEdits()) {
+            int difference = findDifference(pom, pos, edit.start, offset);
+            if (difference != -1) {
+                return difference;
+            }
+            offset += edit.start - pos;
+            difference = edit.replacement.findDifference(pom, offset);
+            if (difference != -1) {
+                return offset + difference;
+            }
+            offset += edit.replacement.length();
+            pos = edit.end;
+        }
+        int difference = findDifference(pom, pos, pom.length(), offset);
+        if (difference != -1) {
+            return difference;
+        }
+        offset += pom.length() - pos;
+        return offset == pom.length() ? -1 : offset;
+    }
+
+    /**
+     * Compares the given range of a text with the original POM at the given offset.
+     *
+     * @return the offset of the first difference or -1 if the range matches the original POM.
+     */
+    private int findDifference(String text, int start, int end, int offset) {
+        if (text == pom && start == offset) {
+            return -1;
+        }
+        for (int i = start; i < end; ++i, ++offset) {
+            if (offset == pom.length() || text.charAt(i) != pom.charAt(offset)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the violations of the rules, one for every edit or for every violation that an edit has been recorded
+     * with. The region of a violation is the part of the edit that actually changes the POM: the characters that the
+     * original text and the replacement have in common at their start and at their end do not belong to it. Only the
+     * edited text is compared, never the whole POM.
+     *
+     * @return the violations in the order of their offsets.
+     */
+    List<TidyViolation> findViolations() {
+        List<TidyViolation> violations = new ArrayList<>();
+        int addedLines = 0;
+        for (Edit edit : sortEdits()) {
+            int addedLinesOfEdit = 0;
+            int endOfCountedViolations = 0;
+            for (Edit violation : edit.getViolations()) {
+                violations.add(createViolation(violation, addedLines + addedLinesOfEdit));
+                // the lines of a violation that is nested in a previous violation have already been counted
+                if (violation.start >= endOfCountedViolations) {
+                    addedLinesOfEdit += countAddedLines(violation);
+                    endOfCountedViolations = violation.end;
+                }
+            }
+            addedLines += countAddedLines(edit);
+        }
+        return violations;
+    }
+
+    private TidyViolation createViolation(Edit edit, int addedLines) {
+        PieceText replacement = edit.replacement;
+        int prefix = getCommonPrefixLength(edit);
+        int suffix = getCommonSuffixLength(edit, prefix);
+        int start = edit.start + prefix;
+        int end = edit.end - suffix;
+        String changedText = replacement.subSequence(prefix, replacement.length() - suffix).toString();
+        int startOfLine = getStartOfLine(start);
+        int endOfLine = getEndOfLine(Math.max(start, end - 1));
+        String originalLines = pom.substring(startOfLine, endOfLine);
+        String tidyLines = pom.substring(startOfLine, start) + changedText + pom.substring(end, endOfLine);
+        int line = getLineNumber(startOfLine);
+        return new TidyViolation(
+                edit.rule,
+                line,
+                start - startOfLine + 1,
+                getLineNumber(end),
+                end - getStartOfLine(end) + 1,
+                createHunk(line, line + addedLines, originalLines, tidyLines));
+    }
+
+    private int countAddedLines(Edit edit) {
+        return countLineBreaks(edit.replacement) - countLineBreaks(pom.substring(edit.start, edit.end));
+    }
+
+    /**
+     * Returns the edits that change the POM. Like the regions of the violations, an edit does not contain the
+     * characters that the original text and the replacement have in common at their start and at their end.
+     *
+     * @return the edits in the order of their offsets.
+     */
+    List<TidyEdit> getMinimalEdits() {
+        List<TidyEdit> minimalEdits = new ArrayList<>();
+        for (Edit edit : sortEdits()) {
+            int prefix = getCommonPrefixLength(edit);
+            int suffix = getCommonSuffixLength(edit, prefix);
+            String changedText = edit.replacement.subSequence(prefix, edit.replacement.length() - suffix).toString();
+            minimalEdits.add(new TidyEdit(edit.start + prefix, edit.end - suffix, changedText));
+        }
+        return minimalEdits;
+    }
+
+    private int getCommonPrefixLength(Edit edit) {
+        int maxCommon = Math.min(edit.end - edit.start, edit.replacement.length());
+        int prefix = 0;
+        while (prefix < maxCommon && pom.charAt(edit.start + prefix) == edit.replacement.charAt(prefix)) {
+            ++prefix;
+        }
+        return prefix;
+    }
+
+    private int getCommonSuffixLength(Edit edit, int prefix) {
+        PieceText replacement = edit.replacement;
+        int maxCommon = Math.min(edit.end - edit.start, replacement.length()) - prefix;
+        int suffix = 0;
+        while (suffix < maxCommon
+                && pom.charAt(edit.end - 1 - suffix) == replacement.charAt(replacement.length() - 1 - suffix)) {
+            ++suffix;
+        }
+        return suffix;
+    }
+
+    private int getEndOfLine(int offset) {
+        int line = getLineNumber(offset);
+        return line < numLines ? lineStarts[line] : pom.length();
+    }
+
+    /**
+     * Creates a hunk of a unified diff that replaces the original lines with the tidy lines.
+     */
+    private static String createHunk(int originalLine, int tidyLine, String originalLines, String tidyLines) {
+        List<String> removed = splitLines(originalLines);
+        List<String> added = splitLines(tidyLines);
+        StringBuilder hunk = new StringBuilder();
+        hunk.append("@@ -").append(originalLine).append(',').append(removed.size());
+        hunk.append(" +").append(tidyLine).append(',').append(added.size()).append(" @@\n");
+        for (String line : removed) {
+            hunk.append('-').append(line).append('\n');
+        }
+        for (String line : added) {
+            hunk.append('+').append(line).append('\n');
+        }
+        return hunk.toString();
+    }
+
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r') {
+                lines.add(text.substring(start, i));
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    ++i;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    private static int countLineBreaks(CharSequence text) {
+        int lineBreaks = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '\n' || c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n')) {
+                ++lineBreaks;
+            }
+        }
+        return lineBreaks;
+    }
+
+    private List<Edit> sortEdits() {
+        List<Edit> sortedEdits = new ArrayList<>(edits);
+        Collections.sort(sortedEdits);
+        int pos = 0;
+        for (Edit edit : sortedEdits) {
+            if (edit.start < pos) {
+                throw new IllegalStateException("The edit at offset " + edit.start + " overlaps a previous edit.");
+            }
+            pos = edit.end;
+        }
+        return sortedEdits;
+    }
+
+    /**
+     * An edit of the original POM.
+     */
+    static class Edit implements Comparable<Edit> {
+        /**
+         * Orders edits by their start and edits with the same start by their end in descending order, so that an
+         * edit comes before the edits that are nested in it.
+         */
+        private static final Comparator<Edit> NESTING_ORDER =
+                Comparator.comparingInt((Edit edit) -> edit.start).thenComparingInt(edit -> -edit.end);
+
+        final int start;
+
+        final int end;
+
+        final PieceText replacement;
+
+        final String rule;
+
+        List<Edit> violations;
+
+        /**
+         * Creates an edit.
+         *
+         * @param start       the offset of the first character that is replaced.
+         * @param end         the offset after the last character that is replaced.
+         * @param replacement the new text.
+         * @param rule        the rule that requires the edit.
+         */
+        Edit(int start, int end, PieceText replacement, String rule) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+            this.rule = rule;
+        }
+
+        /**
+         * Returns the violations that this edit is reported as.
+         */
+        List<Edit> getViolations() {
+            if (violations == null || violations.isEmpty()) {
+                return Collections.singletonList(this);
+            }
+            List<Edit> sortedViolations = new ArrayList<>(violations);
+            sortedViolations.sort(NESTING_ORDER);
+            return sortedViolations;
+        }
+
+        @Override
+        public int compareTo(Edit other) {
+            return Integer.compare(start, other.start);
+        }
+    }
+}
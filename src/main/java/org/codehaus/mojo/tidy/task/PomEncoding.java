@@ -0,0 +1,179 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The encoding of a POM file. It is detected like an XML parser does: a byte order mark comes first, then the
+ * <code>encoding</code> of the XML declaration and UTF-8 is the default. A tidy POM is written in the encoding of
+ * the POM, with the same byte order mark.
+ */
+public final class PomEncoding {
+    /**
+     * The number of bytes at the start of a POM that contain the XML declaration.
+     */
+    private static final int HEAD_LENGTH = 1024;
+
+    private static final byte[] NO_BYTE_ORDER_MARK = {};
+
+    private static final byte[] UTF_8_BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private static final byte[] UTF_16BE_BYTE_ORDER_MARK = {(byte) 0xFE, (byte) 0xFF};
+
+    private static final byte[] UTF_16LE_BYTE_ORDER_MARK = {(byte) 0xFF, (byte) 0xFE};
+
+    private static final byte[] UTF_16BE_DECLARATION = {0, '<', 0, '?'};
+
+    private static final byte[] UTF_16LE_DECLARATION = {'<', 0, '?', 0};
+
+    private static final Pattern ENCODING = Pattern.compile("encoding\\s*=\\s*[\"']([A-Za-z][A-Za-z0-9._-]*)[\"']");
+
+    private final Charset charset;
+
+    private final byte[] byteOrderMark;
+
+    private static final PomEncoding DEFAULT = new PomEncoding(UTF_8, NO_BYTE_ORDER_MARK);
+
+    private PomEncoding(Charset charset, byte[] byteOrderMark) {
+        this.charset = charset;
+        this.byteOrderMark = byteOrderMark;
+    }
+
+    /**
+     * Returns the encoding of a POM without byte order mark and without XML declaration: UTF-8.
+     *
+     * @return the default encoding.
+     */
+    public static PomEncoding getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Detects the encoding of a POM.
+     *
+     * @param pom the bytes of the POM. The start of the POM is sufficient.
+     * @return the encoding.
+     * @throws IllegalArgumentException if the encoding of the POM is not supported.
+     */
+    public static PomEncoding detect(byte[] pom) {
+        if (startsWith(pom, UTF_8_BYTE_ORDER_MARK)) {
+            return new PomEncoding(UTF_8, UTF_8_BYTE_ORDER_MARK);
+        } else if (startsWith(pom, UTF_16BE_BYTE_ORDER_MARK)) {
+            return new PomEncoding(UTF_16BE, UTF_16BE_BYTE_ORDER_MARK);
+        } else if (startsWith(pom, UTF_16LE_BYTE_ORDER_MARK)) {
+            return new PomEncoding(UTF_16LE, UTF_16LE_BYTE_ORDER_MARK);
+        } else if (startsWith(pom, UTF_16BE_DECLARATION)) {
+            return new PomEncoding(UTF_16BE, NO_BYTE_ORDER_MARK);
+        } else if (startsWith(pom, UTF_16LE_DECLARATION)) {
+            return new PomEncoding(UTF_16LE, NO_BYTE_ORDER_MARK);
+        } else {
+            return new PomEncoding(getDeclaredCharset(pom), NO_BYTE_ORDER_MARK);
+        }
+    }
+
+    private static boolean startsWith(byte[] pom, byte[] prefix) {
+        if (pom.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; ++i) {
+            if (pom[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the charset of the XML declaration. The declaration consists of ASCII characters in every encoding
+     * that can be declared without a byte order mark.
+     */
+    private static Charset getDeclaredCharset(byte[] pom) {
+        String head = new String(pom, 0, Math.min(pom.length, HEAD_LENGTH), ISO_8859_1);
+        int endOfDeclaration = head.indexOf("?>");
+        if (!head.startsWith("<?xml") || endOfDeclaration == -1) {
+            return UTF_8;
+        }
+        Matcher encoding = ENCODING.matcher(head.substring(0, endOfDeclaration));
+        return encoding.find() ? Charset.forName(encoding.group(1)) : UTF_8;
+    }
+
+    /**
+     * Returns the charset of the POM.
+     *
+     * @return the charset.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns the name of this encoding for the XML declaration. A POM in UTF-16 with a byte order mark is declared
+     * as <code>UTF-16</code>, because the byte order mark determines the byte order.
+     *
+     * @return the name.
+     */
+    String getDeclaredName() {
+        boolean utf16 = charset.equals(UTF_16BE) || charset.equals(UTF_16LE);
+        return utf16 && byteOrderMark.length != 0 ? "UTF-16" : charset.name();
+    }
+
+    /**
+     * Decodes a POM in this encoding. Invalid bytes are not replaced, because the replacement characters would be
+     * written back to the POM when it is tidied.
+     *
+     * @param pom the bytes of the POM.
+     * @return the POM without the byte order mark.
+     * @throws CharacterCodingException if the POM contains bytes that are invalid in this encoding.
+     */
+    public String decode(byte[] pom) throws CharacterCodingException {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(pom, byteOrderMark.length, pom.length - byteOrderMark.length))
+                .toString();
+    }
+
+    /**
+     * Creates a writer that writes a POM in this encoding. The byte order mark is written immediately.
+     *
+     * @param out the stream of the POM file.
+     * @return the writer.
+     * @throws IOException if the byte order mark cannot be written.
+     */
+    public Writer createWriter(OutputStream out) throws IOException {
+        out.write(byteOrderMark);
+        return new OutputStreamWriter(out, charset);
+    }
+}
@@ -0,0 +1,208 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import java.util.NoSuchElementException;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * A cursor over the events of a {@link PomDocument}, similar to {@link javax.xml.stream.XMLStreamReader}. Moving
+ * the cursor does not allocate.
+ */
+class PomEventCursor {
+    private final PomDocument document;
+
+    private final PomEvents events;
+
+    private int current;
+
+    private long numReadEvents;
+
+    PomEventCursor(PomDocument document, PomEvents events) {
+        this.document = document;
+        this.events = events;
+    }
+
+    /**
+     * Returns whether there is another event.
+     */
+    boolean hasNext() {
+        return current + 1 < events.size();
+    }
+
+    /**
+     * Moves the cursor to the next event.
+     *
+     * @return the type of the next event.
+     * @throws TidyLimitExceededException if the time limit of the POM has been exceeded.
+     */
+    int next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        if (++numReadEvents % TidyLimits.TIME_CHECK_INTERVAL == 0) {
+            document.checkTime();
+        }
+        return events.getType(++current);
+    }
+
+    /**
+     * Returns the index of the current event. The start of the document is the event 0.
+     */
+    int getPosition() {
+        return current;
+    }
+
+    /**
+     * Moves the cursor to the given event without reading the events in between, e.g. for skipping a section that
+     * has been processed by another cursor.
+     *
+     * @param position the index of the event.
+     */
+    void moveTo(int position) {
+        if (position < 0 || position >= events.size()) {
+            throw new IndexOutOfBoundsException("There is no event " + position + ".");
+        }
+        current = position;
+    }
+
+    /**
+     * Returns the number of events that have been read by this cursor.
+     */
+    long getNumberOfReadEvents() {
+        return numReadEvents;
+    }
+
+    /**
+     * Returns the type of the current event.
+     */
+    int getEventType() {
+        return events.getType(current);
+    }
+
+    /**
+     * Returns the local name of the current start or end element.
+     */
+    String getLocalName() {
+        return events.getLocalName(current);
+    }
+
+    /**
+     * Returns the offset of the first character of the current event.
+     */
+    int getStartOffset() {
+        return events.getOffset(current);
+    }
+
+    /**
+     * Returns the offset of the first character of the next event, which is the offset after the last character
+     * of the current event.
+     */
+    int getEndOffset() {
+        return hasNext() ? events.getOffset(current + 1) : document.getPom().length();
+    }
+
+    /**
+     * Returns the value of an attribute of the current start element.
+     *
+     * @param namespace the namespace of the attribute or <code>null</code> for an attribute without namespace.
+     * @param localName the local name of the attribute.
+     * @return the value or <code>null</code> if the element has no such attribute.
+     */
+    String getAttributeValue(String namespace, String localName) {
+        String[] attributes = events.getAttributes(current);
+        for (int i = 0; i < attributes.length; i += 3) {
+            String attributeNamespace = attributes[i] == null ? "" : attributes[i];
+            if (attributeNamespace.equals(namespace == null ? "" : namespace)
+                    && attributes[i + 1].equals(localName)) {
+                return attributes[i + 2];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the text of a text only element. The cursor must be at the start element and is moved to the end
+     * element.
+     *
+     * @return the text without comments and with the entities resolved.
+     * @throws XMLStreamException if the element contains another element.
+     */
+    String getElementText() throws XMLStreamException {
+        String pom = document.getPom();
+        StringBuilder text = new StringBuilder();
+        for (int type = next(); type != END_ELEMENT; type = next()) {
+            if (type == CHARACTERS || type == SPACE || type == CDATA) {
+                appendText(text, pom, getStartOffset(), getEndOffset());
+            } else if (type == START_ELEMENT) {
+                throw new XMLStreamException("Elements are not allowed in a text only element.");
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Appends text of the POM. The content of CDATA sections is appended as it is, the predefined entities and the
+     * character references are resolved. They are the only references that a POM without DTD may contain.
+     */
+    private static void appendText(StringBuilder text, String pom, int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            char c = pom.charAt(pos);
+            if (c == '&') {
+                int semicolon = pom.indexOf(';', pos);
+                appendReference(text, pom.substring(pos + 1, semicolon));
+                pos = semicolon + 1;
+            } else if (c == '<' && pom.startsWith("<![CDATA[", pos)) {
+                int endOfCdata = pom.indexOf("]]>", pos);
+                text.append(pom, pos + "<![CDATA[".length(), endOfCdata);
+                pos = endOfCdata + "]]>".length();
+            } else {
+                text.append(c);
+                ++pos;
+            }
+        }
+    }
+
+    private static void appendReference(StringBuilder text, String reference) {
+        if (reference.startsWith("#x")) {
+            text.appendCodePoint(Integer.parseInt(reference.substring(2), 16));
+        } else if (reference.startsWith("#")) {
+            text.appendCodePoint(Integer.parseInt(reference.substring(1)));
+        } else if (reference.equals("lt")) {
+            text.append('<');
+        } else if (reference.equals("gt")) {
+            text.append('>');
+        } else if (reference.equals("amp")) {
+            text.append('&');
+        } else if (reference.equals("quot")) {
+            text.append('"');
+        } else {
+            text.append('\'');
+        }
+    }
+}
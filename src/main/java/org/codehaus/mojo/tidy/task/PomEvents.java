@@ -0,0 +1,230 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import java.io.StringReader;
+
+import org.codehaus.stax2.XMLInputFactory2;
+import org.codehaus.stax2.XMLStreamReader2;
+
+import static java.util.Arrays.copyOf;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * The events of a POM. Only the type, the offset of the first character and the local name of an element are kept
+ * in arrays, so that an event is not an object of its own. The text of the POM is taken from the POM itself. The
+ * attributes are kept for the few elements that have attributes.
+ */
+class PomEvents {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final String[] NO_ATTRIBUTES = {};
+
+    private int size;
+
+    private int[] types = new int[256];
+
+    private int[] offsets = new int[256];
+
+    private String[] names = new String[256];
+
+    private String[][] attributes = new String[256][];
+
+    private final int length;
+
+    private final TidyLimits limits;
+
+    private final long startNanos;
+
+    private XMLStreamReader2 reader;
+
+    private int depth;
+
+    private PomEvents(String pom, TidyLimits limits, long startNanos) throws XMLStreamException {
+        this.length = pom.length();
+        this.limits = limits;
+        this.startNanos = startNanos;
+        this.reader = (XMLStreamReader2) XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(pom));
+        add(START_DOCUMENT, 0, null, NO_ATTRIBUTES);
+    }
+
+    /**
+     * Opens a POM for parsing it with the cursor API of Woodstox. The names are interned by Woodstox, so that the
+     * names of the events share the same strings. Only the offsets of the events are read, their text is never
+     * created. The events are parsed one by one by {@link #parseNext()} or all at once by {@link #parseAll()}, so
+     * that a task that needs only the start of a large POM does not parse all of it.
+     *
+     * @param pom        the POM.
+     * @param limits     the limits of the depth, of the number of events and of the time.
+     * @param startNanos the start of tidying the POM as value of {@link System#nanoTime()}.
+     * @return the events of the POM, only the start of the document so far.
+     * @throws XMLStreamException if the POM cannot be opened.
+     */
+    static PomEvents open(String pom, TidyLimits limits, long startNanos) throws XMLStreamException {
+        return new PomEvents(pom, limits, startNanos);
+    }
+
+    /**
+     * Parses the events that have not been parsed yet.
+     *
+     * @throws XMLStreamException          if the POM cannot be parsed.
+     * @throws TidyLimitExceededException if the POM exceeds a limit.
+     */
+    void parseAll() throws XMLStreamException {
+        while (parseNext()) {
+            // parses the next event
+        }
+    }
+
+    /**
+     * Parses the next event.
+     *
+     * @return <code>false</code> if all events have already been parsed.
+     * @throws XMLStreamException          if the POM cannot be parsed.
+     * @throws TidyLimitExceededException if the POM exceeds a limit.
+     */
+    boolean parseNext() throws XMLStreamException {
+        if (reader == null) {
+            return false;
+        }
+        try {
+            if (!reader.hasNext()) {
+                close();
+                return false;
+            }
+            int type = reader.next();
+            if (type == END_DOCUMENT) {
+                add(type, length, null, NO_ATTRIBUTES);
+                close();
+            } else {
+                int offset = (int) reader.getLocationInfo().getStartingCharOffset();
+                if (type == START_ELEMENT) {
+                    limits.checkDepth(++depth);
+                    add(type, offset, reader.getLocalName(), getAttributes(reader));
+                } else if (type == END_ELEMENT) {
+                    --depth;
+                    add(type, offset, reader.getLocalName(), NO_ATTRIBUTES);
+                } else {
+                    add(type, offset, null, NO_ATTRIBUTES);
+                }
+            }
+            return true;
+        } catch (XMLStreamException | RuntimeException e) {
+            // a reader of a string holds no resources, it is just dropped
+            reader = null;
+            throw e;
+        }
+    }
+
+    private void close() throws XMLStreamException {
+        XMLStreamReader2 openReader = reader;
+        reader = null;
+        openReader.close();
+    }
+
+    private static String[] getAttributes(XMLStreamReader2 reader) {
+        int numAttributes = reader.getAttributeCount();
+        if (numAttributes == 0) {
+            return NO_ATTRIBUTES;
+        }
+        String[] attributes = new String[3 * numAttributes];
+        for (int i = 0; i < numAttributes; ++i) {
+            attributes[3 * i] = reader.getAttributeNamespace(i);
+            attributes[3 * i + 1] = reader.getAttributeLocalName(i);
+            attributes[3 * i + 2] = reader.getAttributeValue(i);
+        }
+        return attributes;
+    }
+
+    private void add(int type, int offset, String name, String[] elementAttributes) {
+        limits.checkEvents(size + 1);
+        if (size % TidyLimits.TIME_CHECK_INTERVAL == 0) {
+            limits.checkTime(startNanos);
+        }
+        if (size == types.length) {
+            types = copyOf(types, 2 * size);
+            offsets = copyOf(offsets, 2 * size);
+            names = copyOf(names, 2 * size);
+            attributes = copyOf(attributes, 2 * size);
+        }
+        types[size] = type;
+        offsets[size] = offset;
+        names[size] = name;
+        attributes[size] = elementAttributes;
+        ++size;
+    }
+
+    /**
+     * Creates the factory that is shared by all POMs. The factory is thread-safe once it is configured.
+     */
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory2.newInstance();
+        inputFactory.setProperty(XMLInputFactory2.P_PRESERVE_LOCATION, true);
+        inputFactory.setProperty(XMLInputFactory2.P_INTERN_NAMES, true);
+        inputFactory.setProperty(XMLInputFactory2.P_INTERN_NS_URIS, true);
+        inputFactory.setProperty(XMLInputFactory2.P_LAZY_PARSING, true);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return inputFactory;
+    }
+
+    /**
+     * Returns the number of events.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of an event, e.g. {@link javax.xml.stream.XMLStreamConstants#START_ELEMENT}.
+     */
+    int getType(int event) {
+        return types[event];
+    }
+
+    /**
+     * Returns the offset of the first character of an event. The offset of the end of the document is the length
+     * of the POM.
+     */
+    int getOffset(int event) {
+        return offsets[event];
+    }
+
+    /**
+     * Returns the local name of a start or end element.
+     */
+    String getLocalName(int event) {
+        return names[event];
+    }
+
+    /**
+     * Returns the attributes of a start element as triples of namespace, local name and value.
+     */
+    String[] getAttributes(int event) {
+        return attributes[event];
+    }
+}
@@ -21,27 +21,394 @@ package org.codehaus.mojo.tidy.task;
 
 import javax.xml.stream.XMLStreamException;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
+import org.codehaus.mojo.tidy.task.TidyResultCache.Key;
+import org.codehaus.mojo.tidy.task.TidyResultCache.Result;
+
 import static java.util.Arrays.asList;
 
 /**
- * Tidy up a POM into the canonical order.
+ * Tidy up a POM into the canonical order. This is the entry point for using the tidy outside of Maven:
+ *
+ * <pre>
+ * PomTidy pomTidy = new PomTidy();
+ * String tidyPom = pomTidy.tidy(pom);
+ * </pre>
+ *
+ * A tidy is thread-safe and should be shared by all POMs with the same configuration. A tidy that is created with a
+ * {@link TidyResultCache} keeps the results of recently tidied POMs in it, so that a POM that is checked and then
+ * tidied is processed only once. The other tidies keep nothing. A POM
+ * that exceeds the {@link TidyLimits} of the tidy is not tidied, every method fails with a
+ * {@link TidyLimitExceededException} instead.
  */
 public class PomTidy {
-    private static final FormatIdentifier FORMAT_IDENTIFIER = new FormatIdentifier();
+    private static final List<TidyTask> DEFAULT_TIDY_TASKS = createTidyTasks(OrderingRules.getDefault());
+
+    private final FormatIdentifier formatIdentifier;
+
+    private final List<TidyTask> tidyTasks;
+
+    private final EnsureOrderAndIndent orderAndIndent;
+
+    private final List<Object> configuration;
+
+    /**
+     * The cache of the results or <code>null</code> if the results are not cached.
+     */
+    private final TidyResultCache results;
+
+    private final TidyLimits limits;
+
+    private volatile TidyMetrics metrics;
+
+    /**
+     * Creates a tidy that keeps the line separator of every POM.
+     */
+    public PomTidy() {
+        this(null);
+    }
+
+    /**
+     * Creates a tidy that uses the given line separator for every POM.
+     *
+     * @param lineSeparator the line separator or <code>null</code> for keeping the line separator of every POM.
+     */
+    public PomTidy(LineSeparator lineSeparator) {
+        this(lineSeparator, OrderingRules.getDefault());
+    }
+
+    /**
+     * Creates a tidy that uses the given line separator and ordering rules for every POM.
+     *
+     * @param lineSeparator the line separator or <code>null</code> for keeping the line separator of every POM.
+     * @param orderingRules the rules for the order of the elements.
+     */
+    public PomTidy(LineSeparator lineSeparator, OrderingRules orderingRules) {
+        this(lineSeparator, orderingRules, TidyLimits.getDefault());
+    }
+
+    /**
+     * Creates a tidy that uses the given line separator and ordering rules for every POM and that fails for a POM
+     * that exceeds the given limits.
+     *
+     * @param lineSeparator the line separator or <code>null</code> for keeping the line separator of every POM.
+     * @param orderingRules the rules for the order of the elements.
+     * @param limits        the limits of the work for a single POM.
+     */
+    public PomTidy(LineSeparator lineSeparator, OrderingRules orderingRules, TidyLimits limits) {
+        this(lineSeparator, orderingRules, limits, null);
+    }
 
-    private static final List<TidyTask> TIDY_TASKS = asList(
-            new EnsureXmlHeader(),
-            new EnsureOrderAndIndent(),
-            new EnsureSingleLineProjectStartTag(),
-            new EnsureTrailingNewLine());
+    /**
+     * Creates a tidy that uses the given cache for its results.
+     */
+    PomTidy(LineSeparator lineSeparator, OrderingRules orderingRules, TidyResultCache results) {
+        this(lineSeparator, orderingRules, TidyLimits.getDefault(), results);
+    }
 
+    /**
+     * Creates a tidy that keeps its results in the given cache, e.g. for a long-lived JVM that tidies and checks the
+     * same POMs again and again.
+     *
+     * @param lineSeparator the line separator or <code>null</code> for keeping the line separator of every POM.
+     * @param orderingRules the rules for the order of the elements.
+     * @param limits        the limits of the work for a single POM.
+     * @param results       the cache of the results or <code>null</code> for not caching them.
+     */
+    public PomTidy(
+            LineSeparator lineSeparator, OrderingRules orderingRules, TidyLimits limits, TidyResultCache results) {
+        this.limits = limits;
+        this.results = results;
+        this.formatIdentifier = new FormatIdentifier(lineSeparator);
+        this.tidyTasks =
+                orderingRules == OrderingRules.getDefault() ? DEFAULT_TIDY_TASKS : createTidyTasks(orderingRules);
+        this.orderAndIndent = new EnsureOrderAndIndent(orderingRules);
+        // a POM that exceeds the limits must not be served from the cache, but the time does not matter for a result
+        this.configuration = asList(
+                lineSeparator, orderingRules, limits.getMaxLength(), limits.getMaxDepth(), limits.getMaxEvents());
+    }
+
+    private static List<TidyTask> createTidyTasks(OrderingRules orderingRules) {
+        return asList(
+                new EnsureXmlHeader(),
+                new EnsureOrderAndIndent(orderingRules),
+                new EnsureSingleLineProjectStartTag(),
+                new EnsureTrailingNewLine());
+    }
+
+    /**
+     * Tidy up a POM.
+     *
+     * @param pom the POM.
+     * @return the tidy POM. It is the given POM itself if the POM is already tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
     public String tidy(String pom) throws XMLStreamException {
-        Format format = FORMAT_IDENTIFIER.identifyFormat(pom);
-        for (TidyTask task : TIDY_TASKS) {
-            pom = task.tidyPom(pom, format);
+        Key key = createKey(configuration, pom);
+        Result result = getResult(key);
+        if (result != null && result.firstDifference == -1) {
+            return pom;
+        } else if (result != null && result.tidyPom != null) {
+            return result.tidyPom;
+        }
+        PomDocument document = tidyDocument(pom);
+        int firstDifference = document.findFirstDifference();
+        String tidyPom = firstDifference == -1 ? pom : document.applyEdits();
+        putResult(key, new Result(firstDifference, firstDifference == -1 ? null : tidyPom));
+        return tidyPom;
+    }
+
+    /**
+     * Tidy up a POM and write the tidy POM to the given writer. The tidy POM is written piece by piece and is never
+     * held in memory as a whole, which matters for very large POMs.
+     *
+     * @param pom    the POM.
+     * @param output the writer for the tidy POM. It is not closed.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     * @throws IOException        if the tidy POM cannot be written.
+     */
+    public void tidy(String pom, Writer output) throws XMLStreamException, IOException {
+        if (!writeCachedResult(pom, createKey(configuration, pom), output)) {
+            tidyDocument(pom).writeEdits(output);
         }
-        return pom;
+    }
+
+    /**
+     * Tidy up a POM and write the tidy POM to a writer of the given factory, unless the POM is already tidy. The
+     * factory is not called for a tidy POM, so that nothing is written at all.
+     *
+     * @param pom           the POM.
+     * @param writerFactory creates the writer for the tidy POM. The writer is closed by this method.
+     * @return <code>true</code> if the tidy POM has been written, <code>false</code> if the POM is already tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     * @throws IOException        if the tidy POM cannot be written.
+     */
+    public boolean writeIfUntidy(String pom, WriterFactory writerFactory) throws XMLStreamException, IOException {
+        return writeIfUntidy(pom, PomEncoding.getDefault(), writerFactory);
+    }
+
+    /**
+     * Tidy up a POM of a file with the given encoding and write the tidy POM to a writer of the given factory,
+     * unless the POM is already tidy. An XML declaration that is added to the POM declares the encoding.
+     *
+     * @param pom           the POM.
+     * @param encoding      the encoding of the POM file.
+     * @param writerFactory creates the writer for the tidy POM. The writer is closed by this method.
+     * @return <code>true</code> if the tidy POM has been written, <code>false</code> if the POM is already tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     * @throws IOException        if the tidy POM cannot be written.
+     */
+    public boolean writeIfUntidy(String pom, PomEncoding encoding, WriterFactory writerFactory)
+            throws XMLStreamException, IOException {
+        Key key = createKey(getConfiguration(encoding), pom);
+        Result result = getResult(key);
+        if (result != null && result.firstDifference == -1) {
+            return false;
+        } else if (result != null && result.tidyPom != null) {
+            try (Writer output = writerFactory.createWriter()) {
+                output.write(result.tidyPom);
+            }
+            return true;
+        }
+        PomDocument document = tidyDocument(pom, encoding, false);
+        int firstDifference = document.findFirstDifference();
+        putResult(key, new Result(firstDifference, null));
+        if (firstDifference == -1) {
+            return false;
+        }
+        try (Writer output = writerFactory.createWriter()) {
+            document.writeEdits(output);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a POM is tidy. The tidy POM is not created, it is compared with the POM while the edits are
+     * applied and the comparison stops at the first difference.
+     *
+     * @param pom the POM.
+     * @return the offset of the first character of the POM that differs from the tidy POM or -1 if the POM is tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    public int findFirstDifference(String pom) throws XMLStreamException {
+        Key key = createKey(configuration, pom);
+        Result result = getResult(key);
+        if (result == null) {
+            result = new Result(tidyDocument(pom).findFirstDifference(), null);
+            putResult(key, result);
+        }
+        return result.firstDifference;
+    }
+
+    /**
+     * Finds the violations of the rules in a POM that is not tidy. Every violation is a region of the POM that a
+     * rule changes, together with the hunk of a unified diff that shows the change. The violations are not cached,
+     * they are only needed for reporting a POM that is not tidy.
+     *
+     * @param pom the POM.
+     * @return the violations in the order of their positions. The list is empty if the POM is tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    public List<TidyViolation> findViolations(String pom) throws XMLStreamException {
+        return findViolations(pom, PomEncoding.getDefault());
+    }
+
+    /**
+     * Finds the violations of the rules in a POM of a file with the given encoding. A missing XML declaration is
+     * reported with a declaration of the encoding.
+     *
+     * @param pom      the POM.
+     * @param encoding the encoding of the POM file.
+     * @return the violations in the order of their positions. The list is empty if the POM is tidy.
+     * @throws XMLStreamException if the POM cannot be parsed.
+     */
+    public List<TidyViolation> findViolations(String pom, PomEncoding encoding) throws XMLStreamException {
+        return tidyDocument(pom, encoding, true).findViolations();
+    }
+
+    /**
+     * Tidy up only the section of a POM that encloses a changed range, e.g. for formatting the document of an editor
+     * when it is saved. The section is the innermost element with an ordering rule that encloses the range, e.g. a
+     * dependency, and it is sorted and indented like by {@link #tidy(String)}. The POM is parsed only up to the end
+     * of the section, so that the time does not grow with the text after the section. The other rules, e.g. the XML
+     * declaration, are not applied and the results are not cached.
+     *
+     * @param pom   the POM.
+     * @param start the offset of the first character that has changed.
+     * @param end   the offset after the last character that has changed.
+     * @return the edits that tidy up the section in the order of their offsets. They contain only the characters
+     *         that change. The list is empty if the section is tidy or if no section encloses the range.
+     * @throws XMLStreamException if the POM cannot be parsed up to the end of the section.
+     */
+    public List<TidyEdit> tidyRange(String pom, int start, int end) throws XMLStreamException {
+        if (start < 0 || start > end || end > pom.length()) {
+            throw new IndexOutOfBoundsException(
+                    "The range " + start + ".." + end + " is not within the POM of length " + pom.length() + ".");
+        }
+        PomDocument document = new PomDocument(pom, formatIdentifier.identifyFormat(pom), null, limits);
+        orderAndIndent.tidyRange(document, start, end);
+        return document.getMinimalEdits();
+    }
+
+    /**
+     * Describes the position of a character of a POM by its line and column, e.g. for reporting the first
+     * difference of a POM that is not tidy.
+     *
+     * @param pom    the POM.
+     * @param offset the offset of the character.
+     * @return the description, e.g. <code>line 2, column 5</code>.
+     */
+    public static String describePosition(String pom, int offset) {
+        // the lines are separated by LF, CRLF or CR like for the violations; the format is not used
+        PomDocument document = new PomDocument(pom, new Format("\n"));
+        return "line " + document.getLineNumber(offset) + ", column " + (offset - document.getStartOfLine(offset) + 1);
+    }
+
+    /**
+     * Writes the tidy POM if the cache knows it.
+     *
+     * @return <code>true</code> if the tidy POM has been written.
+     */
+    private boolean writeCachedResult(String pom, Key key, Writer output) throws IOException {
+        Result result = getResult(key);
+        if (result != null && result.firstDifference == -1) {
+            output.write(pom);
+            return true;
+        } else if (result != null && result.tidyPom != null) {
+            output.write(result.tidyPom);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the key of the cached result for a POM or <code>null</code> if the results are not cached. The POM is
+     * hashed only if there is a cache.
+     */
+    private Key createKey(Object configuration, String pom) {
+        return results == null ? null : TidyResultCache.createKey(configuration, pom);
+    }
+
+    private Result getResult(Key key) {
+        return key == null ? null : results.get(key);
+    }
+
+    private void putResult(Key key, Result result) {
+        if (key != null) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     * Sets the metrics that record the measurements of every POM that is tidied from now on. POMs whose result is
+     * taken from the cache of recent results are not tidied and are therefore not measured.
+     *
+     * @param metrics the metrics or <code>null</code> for not measuring anything.
+     */
+    public void setMetrics(TidyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the configuration that the results for a POM with the given encoding are cached for. The encoding
+     * makes a difference only for a POM without XML declaration, which is UTF-8 unless it has a byte order mark.
+     */
+    private Object getConfiguration(PomEncoding encoding) {
+        String declaredName = encoding.getDeclaredName();
+        return declaredName.equals(PomEncoding.getDefault().getDeclaredName())
+                ? configuration
+                : asList(configuration, declaredName);
+    }
+
+    private PomDocument tidyDocument(String pom) throws XMLStreamException {
+        return tidyDocument(pom, PomEncoding.getDefault(), false);
+    }
+
+    private PomDocument tidyDocument(String pom, PomEncoding encoding, boolean recordViolations)
+            throws XMLStreamException {
+        TidyMetrics metrics = this.metrics;
+        PomDocument document = new PomDocument(pom, formatIdentifier.identifyFormat(pom), metrics, limits);
+        document.setEncoding(encoding);
+        if (recordViolations) {
+            document.recordViolations();
+        }
+        if (metrics == null) {
+            for (TidyTask task : tidyTasks) {
+                task.tidyPom(document);
+            }
+        } else {
+            metrics.recordPom();
+            for (TidyTask task : tidyTasks) {
+                long events = document.getNumberOfReadEvents();
+                long bytes = TidyMetrics.getAllocatedBytes();
+                long workerBytes = document.getWorkerAllocatedBytes();
+                long start = System.nanoTime();
+                task.tidyPom(document);
+                long nanos = System.nanoTime() - start;
+                if (bytes != -1) {
+                    bytes = TidyMetrics.getAllocatedBytes() - bytes + document.getWorkerAllocatedBytes() - workerBytes;
+                }
+                metrics.recordTask(
+                        task.getClass().getSimpleName(), nanos, document.getNumberOfReadEvents() - events, bytes);
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Creates the writer for a tidy POM.
+     */
+    public interface WriterFactory {
+        /**
+         * Creates the writer for a tidy POM.
+         *
+         * @return a new writer.
+         * @throws IOException if the writer cannot be created.
+         */
+        Writer createWriter() throws IOException;
     }
 }
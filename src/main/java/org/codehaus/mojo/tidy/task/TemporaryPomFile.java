@@ -0,0 +1,129 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+import org.codehaus.mojo.tidy.task.PomTidy.WriterFactory;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A temporary file next to a POM that takes the tidy POM. The file is created only when the writer is requested,
+ * so that nothing is written for a POM that is already tidy. The tidy POM is written in the encoding that the POM
+ * has been read with. A POM that is a symbolic link stays a link: the file that it points to is replaced. The
+ * replaced file keeps its POSIX permissions.
+ * <pre>
+ * DecodedPom pom = DecodedPom.read(pomFile.toPath());
+ * TemporaryPomFile tidyPomFile = new TemporaryPomFile(pomFile, pom.getEncoding());
+ * try {
+ *     if (pomTidy.writeIfUntidy(pom.getPom(), tidyPomFile)) {
+ *         tidyPomFile.replacePom();
+ *     }
+ * } finally {
+ *     tidyPomFile.delete();
+ * }
+ * </pre>
+ */
+public class TemporaryPomFile implements WriterFactory {
+    private final File pomFile;
+
+    private final PomEncoding encoding;
+
+    private Path targetFile;
+
+    private File file;
+
+    /**
+     * Creates a temporary file for the given POM.
+     *
+     * @param pomFile  the POM file.
+     * @param encoding the encoding that the POM has been read with.
+     */
+    public TemporaryPomFile(File pomFile, PomEncoding encoding) {
+        this.pomFile = pomFile;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public Writer createWriter() throws IOException {
+        Path pomPath = pomFile.toPath();
+        targetFile = Files.exists(pomPath) ? pomPath.toRealPath() : pomPath.toAbsolutePath();
+        file = File.createTempFile(pomFile.getName(), ".tmp", targetFile.getParent().toFile());
+        copyPermissions();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            return new BufferedWriter(encoding.createWriter(out));
+        } catch (IOException | RuntimeException e) {
+            // the stream must be closed, so that the temporary file can be deleted on Windows
+            try {
+                out.close();
+            } catch (IOException closeException) {
+                e.addSuppressed(closeException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the POSIX permissions of the POM to the temporary file, which is only readable by its owner.
+     */
+    private void copyPermissions() throws IOException {
+        if (Files.exists(targetFile)
+                && Files.getFileAttributeView(targetFile, PosixFileAttributeView.class) != null
+                && Files.getFileAttributeView(file.toPath(), PosixFileAttributeView.class) != null) {
+            Files.setPosixFilePermissions(file.toPath(), Files.getPosixFilePermissions(targetFile));
+        }
+    }
+
+    /**
+     * Replaces the POM, or the file that it links to, with the temporary file. The POM is replaced atomically if the
+     * file system supports it, so that the POM is never left half written.
+     *
+     * @throws IOException if the POM cannot be replaced.
+     */
+    public void replacePom() throws IOException {
+        try {
+            Files.move(file.toPath(), targetFile, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(file.toPath(), targetFile, REPLACE_EXISTING);
+        }
+        file = null;
+    }
+
+    /**
+     * Deletes the temporary file if it still exists.
+     */
+    public void delete() {
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+}
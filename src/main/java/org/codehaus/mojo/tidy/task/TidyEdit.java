@@ -0,0 +1,70 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A change of a POM that replaces the text between two offsets, e.g. for applying the tidy to the document of an
+ * editor without replacing the whole document. The offsets are offsets of the original POM.
+ */
+public final class TidyEdit {
+    private final int start;
+
+    private final int end;
+
+    private final String replacement;
+
+    TidyEdit(int start, int end, String replacement) {
+        this.start = start;
+        this.end = end;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Returns the offset of the first character that is replaced.
+     *
+     * @return the offset.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the offset after the last character that is replaced. It is the start if the replacement is inserted.
+     *
+     * @return the offset.
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Returns the new text.
+     *
+     * @return the text. It is empty if the text between the offsets is removed.
+     */
+    public String getReplacement() {
+        return replacement;
+    }
+
+    @Override
+    public String toString() {
+        return "replace " + start + ".." + end + " with \"" + replacement + "\"";
+    }
+}
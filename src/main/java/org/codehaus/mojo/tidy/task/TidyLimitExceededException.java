@@ -0,0 +1,57 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.mojo.tidy.task.TidyLimits.Limit;
+
+/**
+ * Signals that a POM exceeds one of the {@link TidyLimits}. The POM has not been tidied.
+ */
+public class TidyLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final Limit limit;
+
+    private final long maximum;
+
+    TidyLimitExceededException(Limit limit, long maximum, String message) {
+        super(message);
+        this.limit = limit;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Returns the limit that is exceeded.
+     *
+     * @return the limit.
+     */
+    public Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the value of the limit, e.g. the maximum number of characters.
+     *
+     * @return the value. The maximum time is given in milliseconds.
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+}
@@ -0,0 +1,234 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits of the work that the tidy spends on a single POM, so that a pathological POM, e.g. a huge machine
+ * generated file, fails fast instead of stalling the build. A POM that exceeds a limit is not tidied and a
+ * {@link TidyLimitExceededException} is thrown. The time limit is checked while the POM is parsed and read, after every
+ * thousand events. A limit of 0 means that there is no limit.
+ *
+ * <pre>
+ * TidyLimits limits = TidyLimits.getDefault().withMaxLength(1024 * 1024).withTimeoutMillis(5000);
+ * </pre>
+ */
+public final class TidyLimits {
+    private static final TidyLimits UNLIMITED = new TidyLimits(0, 0, 0, 0);
+
+    private static final TidyLimits DEFAULT = new TidyLimits(0, 1000, 0, 60000);
+
+    /**
+     * The number of events after which the time is checked again.
+     */
+    static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final int maxLength;
+
+    private final int maxDepth;
+
+    private final int maxEvents;
+
+    private final long timeoutMillis;
+
+    private TidyLimits(int maxLength, int maxDepth, int maxEvents, long timeoutMillis) {
+        this.maxLength = maxLength;
+        this.maxDepth = maxDepth;
+        this.maxEvents = maxEvents;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Returns the limits that no real POM exceeds: a depth of 1000 elements and one minute. The length and the
+     * number of events are not limited, because huge generated POMs, e.g. flattened BOMs, are tidied on purpose.
+     *
+     * @return the default limits.
+     */
+    public static TidyLimits getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns limits that allow everything.
+     *
+     * @return no limits.
+     */
+    public static TidyLimits unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns these limits with another maximum number of characters of a POM.
+     *
+     * @param maxLength the maximum number of characters or 0 for no limit.
+     * @return the new limits.
+     */
+    public TidyLimits withMaxLength(int maxLength) {
+        return new TidyLimits(checkNotNegative(maxLength), maxDepth, maxEvents, timeoutMillis);
+    }
+
+    /**
+     * Returns these limits with another maximum depth of the elements. The root element has the depth 1.
+     *
+     * @param maxDepth the maximum depth or 0 for no limit.
+     * @return the new limits.
+     */
+    public TidyLimits withMaxDepth(int maxDepth) {
+        return new TidyLimits(maxLength, checkNotNegative(maxDepth), maxEvents, timeoutMillis);
+    }
+
+    /**
+     * Returns these limits with another maximum number of XML events of a POM, e.g. start elements, texts and
+     * comments.
+     *
+     * @param maxEvents the maximum number of events or 0 for no limit.
+     * @return the new limits.
+     */
+    public TidyLimits withMaxEvents(int maxEvents) {
+        return new TidyLimits(maxLength, maxDepth, checkNotNegative(maxEvents), timeoutMillis);
+    }
+
+    /**
+     * Returns these limits with another maximum time for tidying a POM.
+     *
+     * @param timeoutMillis the maximum time in milliseconds or 0 for no limit.
+     * @return the new limits.
+     */
+    public TidyLimits withTimeoutMillis(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("A limit must not be negative, but it is " + timeoutMillis + ".");
+        }
+        return new TidyLimits(maxLength, maxDepth, maxEvents, timeoutMillis);
+    }
+
+    private static int checkNotNegative(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("A limit must not be negative, but it is " + limit + ".");
+        }
+        return limit;
+    }
+
+    /**
+     * Returns the maximum number of characters of a POM.
+     *
+     * @return the maximum or 0 if there is no limit.
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the maximum depth of the elements.
+     *
+     * @return the maximum or 0 if there is no limit.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the maximum number of XML events of a POM.
+     *
+     * @return the maximum or 0 if there is no limit.
+     */
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    /**
+     * Returns the maximum time for tidying a POM.
+     *
+     * @return the maximum in milliseconds or 0 if there is no limit.
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    void checkLength(int length) {
+        if (maxLength != 0 && length > maxLength) {
+            throw new TidyLimitExceededException(
+                    Limit.LENGTH,
+                    maxLength,
+                    "The POM has " + length + " characters, more than the limit of " + maxLength + ".");
+        }
+    }
+
+    void checkDepth(int depth) {
+        if (maxDepth != 0 && depth > maxDepth) {
+            throw new TidyLimitExceededException(
+                    Limit.DEPTH,
+                    maxDepth,
+                    "The elements of the POM are nested deeper than the limit of " + maxDepth + ".");
+        }
+    }
+
+    void checkEvents(int events) {
+        if (maxEvents != 0 && events > maxEvents) {
+            throw new TidyLimitExceededException(
+                    Limit.EVENTS, maxEvents, "The POM has more XML events than the limit of " + maxEvents + ".");
+        }
+    }
+
+    /**
+     * Checks that the time since the given start does not exceed the limit.
+     *
+     * @param startNanos the start of tidying the POM as value of {@link System#nanoTime()}.
+     */
+    void checkTime(long startNanos) {
+        if (timeoutMillis != 0 && System.nanoTime() - startNanos > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+            throw new TidyLimitExceededException(
+                    Limit.TIME,
+                    timeoutMillis,
+                    "Tidying the POM takes longer than the limit of " + timeoutMillis + " ms.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "maxLength=" + maxLength + ", maxDepth=" + maxDepth + ", maxEvents=" + maxEvents + ", timeoutMillis="
+                + timeoutMillis;
+    }
+
+    /**
+     * The kinds of limits.
+     */
+    public enum Limit {
+        /**
+         * The maximum number of characters of a POM.
+         */
+        LENGTH,
+
+        /**
+         * The maximum depth of the elements.
+         */
+        DEPTH,
+
+        /**
+         * The maximum number of XML events of a POM.
+         */
+        EVENTS,
+
+        /**
+         * The maximum time for tidying a POM.
+         */
+        TIME
+    }
+}
@@ -0,0 +1,255 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measurements of the tidying of POMs. A {@link PomTidy} with metrics records the wall time, the number of XML
+ * events and the allocated bytes of every {@link TidyTask} and of every scope of the ordering rules. The time of a
+ * scope does not include the time of the scopes that are nested in it. All POMs that are tidied with the same
+ * metrics are summed up. Metrics can be shared by several threads.
+ * <p>
+ * The allocated bytes are measured only on JVMs that support it, e.g. HotSpot, and are -1 otherwise. The bytes of a
+ * task include the bytes that the worker threads allocate when a large POM is formatted in parallel.
+ */
+public class TidyMetrics {
+    private static final Method GET_THREAD_ALLOCATED_BYTES = findGetThreadAllocatedBytes();
+
+    private int numPoms;
+
+    private final Map<String, Measurement> tasks = new TreeMap<>();
+
+    private final Map<String, Measurement> scopes = new TreeMap<>();
+
+    synchronized void recordPom() {
+        ++numPoms;
+    }
+
+    synchronized void recordTask(String task, long nanos, long events, long bytes) {
+        record(tasks, task, nanos, events, bytes);
+    }
+
+    synchronized void recordScope(String scope, long nanos, long events, long bytes) {
+        record(scopes, scope, nanos, events, bytes);
+    }
+
+    private void record(Map<String, Measurement> measurements, String name, long nanos, long events, long bytes) {
+        Measurement measurement = measurements.get(name);
+        if (measurement == null) {
+            measurement = new Measurement(name);
+            measurements.put(name, measurement);
+        }
+        ++measurement.count;
+        measurement.nanos += nanos;
+        measurement.events += events;
+        measurement.bytes = measurement.bytes == -1 || bytes == -1 ? -1 : measurement.bytes + bytes;
+    }
+
+    /**
+     * Returns the number of bytes that have been allocated by the current thread so far.
+     *
+     * @return the number of bytes or -1 if the JVM does not measure them.
+     */
+    static long getAllocatedBytes() {
+        if (GET_THREAD_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) GET_THREAD_ALLOCATED_BYTES.invoke(
+                    ManagementFactory.getThreadMXBean(), Thread.currentThread().getId());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static Method findGetThreadAllocatedBytes() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (!type.isInstance(bean)) {
+                return null;
+            }
+            Method method = type.getMethod("getThreadAllocatedBytes", long.class);
+            method.invoke(bean, Thread.currentThread().getId());
+            return method;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of POMs that have been measured.
+     *
+     * @return the number of POMs.
+     */
+    public synchronized int getNumberOfPoms() {
+        return numPoms;
+    }
+
+    /**
+     * Returns the measurements of the tasks ordered by the name of the task.
+     *
+     * @return the measurements of the tasks.
+     */
+    public synchronized List<Measurement> getTasks() {
+        return copy(tasks);
+    }
+
+    /**
+     * Returns the measurements of the scopes ordered by the scope.
+     *
+     * @return the measurements of the scopes.
+     */
+    public synchronized List<Measurement> getScopes() {
+        return copy(scopes);
+    }
+
+    private List<Measurement> copy(Map<String, Measurement> measurements) {
+        List<Measurement> copies = new ArrayList<>();
+        for (Measurement measurement : measurements.values()) {
+            copies.add(measurement.copy());
+        }
+        return copies;
+    }
+
+    /**
+     * Writes the metrics as JSON.
+     *
+     * @param writer the writer for the JSON document.
+     * @throws IOException if the document cannot be written.
+     */
+    public synchronized void writeJson(Writer writer) throws IOException {
+        writer.write("{\n  \"poms\": " + numPoms + ",\n  \"tasks\": ");
+        writeJson(writer, tasks);
+        writer.write(",\n  \"scopes\": ");
+        writeJson(writer, scopes);
+        writer.write("\n}\n");
+    }
+
+    private void writeJson(Writer writer, Map<String, Measurement> measurements) throws IOException {
+        writer.write("[");
+        String separator = "\n";
+        for (Measurement measurement : measurements.values()) {
+            writer.write(separator);
+            writer.write("    {\"name\": \"" + escapeJson(measurement.name) + "\", \"count\": " + measurement.count
+                    + ", \"wallTimeNanos\": " + measurement.nanos + ", \"events\": " + measurement.events
+                    + ", \"allocatedBytes\": " + measurement.bytes + "}");
+            separator = ",\n";
+        }
+        writer.write(measurements.isEmpty() ? "]" : "\n  ]");
+    }
+
+    private String escapeJson(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < ' ') {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * The sum of the measurements of a task or a scope.
+     */
+    public static class Measurement {
+        private final String name;
+
+        private int count;
+
+        private long nanos;
+
+        private long events;
+
+        private long bytes;
+
+        Measurement(String name) {
+            this.name = name;
+        }
+
+        Measurement copy() {
+            Measurement copy = new Measurement(name);
+            copy.count = count;
+            copy.nanos = nanos;
+            copy.events = events;
+            copy.bytes = bytes;
+            return copy;
+        }
+
+        /**
+         * Returns the name of the task or the scope.
+         *
+         * @return the name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns how often the task has run or how many sections of the scope have been formatted.
+         *
+         * @return the number of measurements.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the wall time.
+         *
+         * @return the wall time in nanoseconds.
+         */
+        public long getWallTimeNanos() {
+            return nanos;
+        }
+
+        /**
+         * Returns the number of XML events that have been read.
+         *
+         * @return the number of events.
+         */
+        public long getEvents() {
+            return events;
+        }
+
+        /**
+         * Returns the number of allocated bytes.
+         *
+         * @return the number of bytes or -1 if they have not been measured.
+         */
+        public long getAllocatedBytes() {
+            return bytes;
+        }
+    }
+}
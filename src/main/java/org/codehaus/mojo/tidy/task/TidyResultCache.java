@@ -0,0 +1,163 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A cache of the results of recent tidy calls. In a long-lived JVM, e.g. the Maven daemon or an IDE, POMs that have
+ * been tidied or checked before are not parsed again. A result is identified by a hash of the POM and by the
+ * configuration of the tidy. The least recently used results are evicted as soon as the results exceed the memory
+ * budget of the cache. A {@link PomTidy} uses a cache only if it is created with one.
+ */
+public class TidyResultCache {
+    private static final TidyResultCache SHARED = new TidyResultCache(16 * 1024 * 1024);
+
+    private final long budget;
+
+    private final Map<Key, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size;
+
+    /**
+     * Creates a cache.
+     *
+     * @param budget the maximum number of bytes of all results.
+     */
+    public TidyResultCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the cache that is shared by all tidies of the JVM that opt in, e.g. by the goals of the plugin. It has
+     * a budget of 16 MiB.
+     *
+     * @return the shared cache.
+     */
+    public static TidyResultCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the key of the result for the given POM.
+     *
+     * @param configuration the configuration of the tidy. It has to implement {@link Object#equals(Object)}.
+     * @param pom           the POM.
+     * @return the key.
+     */
+    static Key createKey(Object configuration, String pom) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The JVM does not support SHA-256.", e);
+        }
+        String hash = String.format("%064x", new BigInteger(1, digest.digest(pom.getBytes(UTF_8))));
+        return new Key(configuration, hash);
+    }
+
+    /**
+     * Returns the cached result.
+     *
+     * @param key the key of the result.
+     * @return the result or <code>null</code> if the cache has no result for the key.
+     */
+    synchronized Result get(Key key) {
+        return results.get(key);
+    }
+
+    /**
+     * Adds a result to the cache. A result that alone exceeds a quarter of the budget is stored without the tidy POM.
+     *
+     * @param key    the key of the result.
+     * @param result the result.
+     */
+    synchronized void put(Key key, Result result) {
+        if (result.getSize() > budget / 4) {
+            result = new Result(result.firstDifference, null);
+        }
+        Result previousResult = results.put(key, result);
+        if (previousResult != null) {
+            size -= previousResult.getSize();
+        }
+        size += result.getSize();
+        Iterator<Result> iterator = results.values().iterator();
+        while (size > budget && iterator.hasNext()) {
+            size -= iterator.next().getSize();
+            iterator.remove();
+        }
+    }
+
+    static class Key {
+        private final Object configuration;
+
+        private final String hash;
+
+        Key(Object configuration, String hash) {
+            this.configuration = configuration;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash.equals(key.hash) && configuration.equals(key.configuration);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash.hashCode();
+        }
+    }
+
+    /**
+     * The result of tidying a POM.
+     */
+    static class Result {
+        /**
+         * The offset of the first character of the POM that differs from the tidy POM or -1 if the POM is tidy.
+         */
+        final int firstDifference;
+
+        /**
+         * The tidy POM or <code>null</code> if the POM is tidy or the tidy POM is not known.
+         */
+        final String tidyPom;
+
+        Result(int firstDifference, String tidyPom) {
+            this.firstDifference = firstDifference;
+            this.tidyPom = tidyPom;
+        }
+
+        long getSize() {
+            return 200 + (tidyPom == null ? 0 : 2L * tidyPom.length());
+        }
+    }
+}
@@ -22,16 +22,29 @@ package org.codehaus.mojo.tidy.task;
 import javax.xml.stream.XMLStreamException;
 
 /**
- * A single task that tidies a POM.
+ * A single task that tidies a POM. A task does not modify the POM itself. It records the necessary edits at the
+ * {@link PomDocument} that is shared by all tasks.
  */
 interface TidyTask {
     /**
-     * Tidies the POM.
+     * Records the edits that tidy the POM.
+     *
+     * @param pom the POM that is tidied.
+     * @throws XMLStreamException
+     */
+    void tidyPom(PomDocument pom) throws XMLStreamException;
+
+    /**
+     * Tidies the POM with this task only.
      *
      * @param pom    the POM as string.
      * @param format the expected format of the POM.
      * @return the tidy POM.
      * @throws XMLStreamException
      */
-    String tidyPom(String pom, Format format) throws XMLStreamException;
+    default String tidyPom(String pom, Format format) throws XMLStreamException {
+        PomDocument document = new PomDocument(pom, format);
+        tidyPom(document);
+        return document.applyEdits();
+    }
 }
@@ -0,0 +1,114 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A region of a POM that violates a rule of the tidy. Lines and columns start with 1, the end of the region is the
+ * position after its last character.
+ */
+public final class TidyViolation {
+    private final String rule;
+
+    private final int line;
+
+    private final int column;
+
+    private final int endLine;
+
+    private final int endColumn;
+
+    private final String diff;
+
+    TidyViolation(String rule, int line, int column, int endLine, int endColumn, String diff) {
+        this.rule = rule;
+        this.line = line;
+        this.column = column;
+        this.endLine = endLine;
+        this.endColumn = endColumn;
+        this.diff = diff;
+    }
+
+    /**
+     * Returns the rule that is violated, e.g. <code>order and indent of /project</code>.
+     *
+     * @return the rule.
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the line of the first character of the region.
+     *
+     * @return the line.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the first character of the region.
+     *
+     * @return the column.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the line of the position after the region.
+     *
+     * @return the line.
+     */
+    public int getEndLine() {
+        return endLine;
+    }
+
+    /**
+     * Returns the column of the position after the region.
+     *
+     * @return the column.
+     */
+    public int getEndColumn() {
+        return endColumn;
+    }
+
+    /**
+     * Returns the change that fixes the violation as a hunk of a unified diff, e.g.
+     *
+     * <pre>
+     * &#64;&#64; -3,2 +3,2 &#64;&#64;
+     * -  &lt;version&gt;1.0&lt;/version&gt;
+     * -  &lt;artifactId&gt;example&lt;/artifactId&gt;
+     * +  &lt;artifactId&gt;example&lt;/artifactId&gt;
+     * +  &lt;version&gt;1.0&lt;/version&gt;
+     * </pre>
+     *
+     * @return the hunk with a line feed after every line.
+     */
+    public String getDiff() {
+        return diff;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + line + ", column " + column + ": " + rule;
+    }
+}
@@ -0,0 +1,81 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckAggregateMojoTest {
+    private static final String UNTIDY_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <version>1.0</version>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void checksPomsOnlyForTopLevelProject() throws Exception {
+        MavenProject rootProject = createProject("root");
+        MavenProject module = createProject("root/module");
+        MavenSession session =
+                new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        session.setProjects(Arrays.asList(rootProject, module));
+
+        createMojo(session, module).execute();
+
+        CheckAggregateMojo rootMojo = createMojo(session, rootProject);
+        assertThrows(MojoFailureException.class, rootMojo::execute);
+    }
+
+    private MavenProject createProject(String name) throws Exception {
+        File pomFile = new File(directory, name + "/pom.xml");
+        Files.createDirectories(pomFile.getParentFile().toPath());
+        Files.write(pomFile.toPath(), UNTIDY_POM.getBytes(UTF_8));
+        MavenProject project = new MavenProject();
+        project.setGroupId("org.example");
+        project.setArtifactId(pomFile.getParentFile().getName());
+        project.setVersion("1.0");
+        project.setFile(pomFile);
+        return project;
+    }
+
+    private static CheckAggregateMojo createMojo(MavenSession session, MavenProject project) {
+        CheckAggregateMojo mojo = new CheckAggregateMojo();
+        mojo.session = session;
+        mojo.project = project;
+        return mojo;
+    }
+}
@@ -0,0 +1,139 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckMojoTest {
+    private static final String UNTIDY_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <version>1.0</version>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void reportsPomsOfAllProjectsOfReactor() throws Exception {
+        MavenSession session = createSession();
+        File reportFile = new File(directory, "target/tidy-report.xml");
+        File tidyPomFile = write("module/pom.xml", new PomTidy().tidy(UNTIDY_POM));
+        File untidyPomFile = write("pom.xml", UNTIDY_POM);
+
+        createMojo(session, tidyPomFile, reportFile).execute();
+        CheckMojo untidyMojo = createMojo(session, untidyPomFile, reportFile);
+        assertThrows(MojoFailureException.class, untidyMojo::execute);
+
+        String report = new String(Files.readAllBytes(reportFile.toPath()), UTF_8);
+        assertTrue(report.contains("<file name=\"" + tidyPomFile + "\">"), report);
+        assertTrue(report.contains("<file name=\"" + untidyPomFile + "\">"), report);
+    }
+
+    @Test
+    void doesNotHideViolationsByFailureOfReport() throws Exception {
+        write("target", "not a directory");
+        File reportFile = new File(directory, "target/tidy-report.xml");
+        File pomFile = write("pom.xml", UNTIDY_POM);
+
+        CheckMojo mojo = createMojo(createSession(), pomFile, reportFile);
+        MojoFailureException e = assertThrows(MojoFailureException.class, mojo::execute);
+
+        assertEquals(1, e.getSuppressed().length);
+        assertTrue(e.getSuppressed()[0].getMessage().startsWith("Failed to write the report"));
+    }
+
+    @Test
+    void checksPomKnownToBeTidyAgainAfterLimitsChanged() throws Exception {
+        File pomFile = write("pom.xml", new PomTidy().tidy(UNTIDY_POM));
+        File cacheDirectory = new File(directory, "target/tidy-cache");
+        CheckMojo mojo = createMojo(createSession(), pomFile, null);
+        set(CheckMojo.class, mojo, "useCache", true);
+        set(CheckMojo.class, mojo, "cacheDirectory", cacheDirectory);
+        set(CheckMojo.class, mojo, "pluginVersion", "1.0");
+        mojo.execute();
+        assertEquals(1, cacheDirectory.list().length);
+
+        CheckMojo strictMojo = createMojo(createSession(), pomFile, null);
+        set(CheckMojo.class, strictMojo, "useCache", true);
+        set(CheckMojo.class, strictMojo, "cacheDirectory", cacheDirectory);
+        set(CheckMojo.class, strictMojo, "pluginVersion", "1.0");
+        set(TidyMojo.class, strictMojo, "maxDepth", 1);
+        MojoExecutionException e = assertThrows(MojoExecutionException.class, strictMojo::execute);
+        assertTrue(e.getMessage().contains("tidy.maxDepth"), e.getMessage());
+    }
+
+    @Test
+    void doesNotCachePomsForUnknownSnapshotBuild() throws Exception {
+        File pomFile = write("pom.xml", new PomTidy().tidy(UNTIDY_POM));
+        File cacheDirectory = new File(directory, "target/tidy-cache");
+        CheckMojo mojo = createMojo(createSession(), pomFile, null);
+        set(CheckMojo.class, mojo, "useCache", true);
+        set(CheckMojo.class, mojo, "cacheDirectory", cacheDirectory);
+        // the classes of the tests are no JAR, so the build of the SNAPSHOT cannot be identified
+        set(CheckMojo.class, mojo, "pluginVersion", "1.0-SNAPSHOT");
+        mojo.execute();
+        assertFalse(cacheDirectory.exists());
+    }
+
+    private static MavenSession createSession() {
+        return new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+    }
+
+    private static CheckMojo createMojo(MavenSession session, File pomFile, File reportFile) throws Exception {
+        CheckMojo mojo = new CheckMojo();
+        mojo.session = session;
+        set(TidyMojo.class, mojo, "pomFile", pomFile);
+        set(CheckMojo.class, mojo, "reportFile", reportFile);
+        return mojo;
+    }
+
+    private static void set(Class<?> type, Object mojo, String name, Object value) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = new File(directory, name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+}
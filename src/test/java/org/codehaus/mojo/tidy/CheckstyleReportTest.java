@@ -0,0 +1,74 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.codehaus.mojo.tidy.task.TidyViolation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CheckstyleReportTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void reportsViolationsOfEveryPom() throws Exception {
+        Map<File, List<TidyViolation>> violations = new TreeMap<>();
+        violations.put(new File("a/pom.xml"), new PomTidy().findViolations("<project>\n</project>"));
+        violations.put(new File("b/pom.xml"), Collections.emptyList());
+        File reportFile = new File(directory, "target/tidy-report.xml");
+
+        CheckstyleReport.write(reportFile, violations);
+
+        assertEquals(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<checkstyle version=\"8.0\">\n"
+                        + "  <file name=\"a" + File.separator + "pom.xml\">\n"
+                        + "    <error line=\"1\" column=\"1\" severity=\"error\" message=\"The POM is not tidy (XML"
+                        + " declaration). Please format it by running `mvn tidy:pom`.&#10;@@ -1,1 +1,2 @@&#10;"
+                        + "-&lt;project&gt;&#10;+&lt;?xml version=&quot;1.0&quot; encoding=&quot;UTF-8&quot;?&gt;"
+                        + "&#10;+&lt;project&gt;&#10;\" source=\"tidy-maven-plugin\"/>\n"
+                        + "    <error line=\"1\" column=\"9\" severity=\"error\" message=\"The POM is not tidy"
+                        + " (single line project start tag). Please format it by running `mvn tidy:pom`.&#10;"
+                        + "@@ -1,1 +2,1 @@&#10;-&lt;project&gt;&#10;+&lt;project xmlns=&quot;"
+                        + "http://maven.apache.org/POM/4.0.0&quot; xmlns:xsi=&quot;"
+                        + "http://www.w3.org/2001/XMLSchema-instance&quot; xsi:schemaLocation=&quot;"
+                        + "http://maven.apache.org/POM/4.0.0 https://maven.apache.org/xsd/maven-4.0.0.xsd&quot;"
+                        + "&gt;&#10;\" source=\"tidy-maven-plugin\"/>\n"
+                        + "    <error line=\"2\" column=\"11\" severity=\"error\" message=\"The POM is not tidy"
+                        + " (trailing line break). Please format it by running `mvn tidy:pom`.&#10;@@ -2,1 +3,1 @@"
+                        + "&#10;-&lt;/project&gt;&#10;+&lt;/project&gt;&#10;\" source=\"tidy-maven-plugin\"/>\n"
+                        + "  </file>\n"
+                        + "  <file name=\"b" + File.separator + "pom.xml\">\n"
+                        + "  </file>\n"
+                        + "</checkstyle>\n",
+                new String(Files.readAllBytes(reportFile.toPath()), UTF_8));
+    }
+}
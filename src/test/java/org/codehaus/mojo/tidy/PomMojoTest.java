@@ -0,0 +1,99 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PomMojoTest {
+    private static final String UNTIDY_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <version>1.0</version>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    private final List<String> infos = new ArrayList<>();
+
+    @TempDir
+    File directory;
+
+    @Test
+    void reportsRewrittenPomsWhenPomFails() throws Exception {
+        MavenProject rootProject = createProject("root", UNTIDY_POM);
+        MavenProject module = createProject("root/module", "<project>\n<modelVersion>\n</project>\n");
+        MavenProject otherModule = createProject("root/other", UNTIDY_POM);
+        MavenSession session =
+                new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        session.setProjects(Arrays.asList(rootProject, module, otherModule));
+
+        createMojo(session, rootProject).execute();
+        PomMojo moduleMojo = createMojo(session, module);
+        assertThrows(MojoExecutionException.class, moduleMojo::execute);
+
+        assertTrue(infos.contains("Rewrote 1 of 2 POMs."), infos.toString());
+    }
+
+    private MavenProject createProject(String name, String pom) throws Exception {
+        File pomFile = new File(directory, name + "/pom.xml");
+        Files.createDirectories(pomFile.getParentFile().toPath());
+        Files.write(pomFile.toPath(), pom.getBytes(UTF_8));
+        MavenProject project = new MavenProject();
+        project.setGroupId("org.example");
+        project.setArtifactId(pomFile.getParentFile().getName());
+        project.setVersion("1.0");
+        project.setFile(pomFile);
+        return project;
+    }
+
+    private PomMojo createMojo(MavenSession session, MavenProject project) throws Exception {
+        PomMojo mojo = new PomMojo();
+        mojo.session = session;
+        mojo.project = project;
+        Field pomFileField = TidyMojo.class.getDeclaredField("pomFile");
+        pomFileField.setAccessible(true);
+        pomFileField.set(mojo, project.getFile());
+        mojo.setLog(new SystemStreamLog() {
+            @Override
+            public void info(CharSequence content) {
+                infos.add(content.toString());
+            }
+        });
+        return mojo;
+    }
+}
@@ -0,0 +1,115 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PomWatcherTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final BlockingQueue<Path> changedPomFiles = new LinkedBlockingQueue<>();
+
+    private PomWatcher watcher;
+
+    private Thread watchingThread;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void stopWatching() throws Exception {
+        if (watcher != null) {
+            watcher.close();
+            watchingThread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse(watchingThread.isAlive());
+        }
+    }
+
+    @Test
+    void reportsChangedPoms() throws Exception {
+        Path pom = write("pom.xml");
+        Path modulePom = write("module/pom.xml");
+        startWatching(200, pom, modulePom);
+
+        write("module/pom.xml");
+        assertEquals(modulePom, changedPomFiles.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        write("pom.xml");
+        assertEquals(pom, changedPomFiles.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void reportsBurstOfChangesOnce() throws Exception {
+        Path pom = write("pom.xml");
+        startWatching(500, pom);
+
+        write("pom.xml");
+        write("pom.xml");
+        write("pom.xml");
+
+        assertEquals(pom, changedPomFiles.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(changedPomFiles.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void ignoresOtherFiles() throws Exception {
+        Path pom = write("pom.xml");
+        startWatching(200, pom);
+
+        write("other.xml");
+        write("pom.xml");
+
+        assertEquals(pom, changedPomFiles.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(changedPomFiles.poll(1, TimeUnit.SECONDS));
+    }
+
+    private void startWatching(long debounceMillis, Path... pomFiles) throws IOException {
+        watcher = new PomWatcher(Arrays.asList(pomFiles), debounceMillis);
+        watchingThread = new Thread(() -> {
+            try {
+                watcher.watch(changedPomFiles::add);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        watchingThread.start();
+    }
+
+    private Path write(String name) throws IOException {
+        Path file = directory.resolve(name).toAbsolutePath().normalize();
+        Files.createDirectories(file.getParent());
+        return Files.write(file, ("<project><!-- " + System.nanoTime() + " --></project>\n").getBytes(UTF_8));
+    }
+}
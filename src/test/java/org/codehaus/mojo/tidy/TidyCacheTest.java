@@ -0,0 +1,55 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TidyCacheTest {
+    private static final String POM = "<project>\n  <modelVersion>4.0.0</modelVersion>\n</project>\n";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void knowsRecordedPom() throws IOException {
+        new TidyCache(new File(directory, "cache"), "1.0").markTidy(POM);
+        assertTrue(new TidyCache(new File(directory, "cache"), "1.0").isTidy(POM));
+    }
+
+    @Test
+    void doesNotKnowChangedPom() throws IOException {
+        TidyCache cache = new TidyCache(directory, "1.0");
+        cache.markTidy(POM);
+        assertFalse(cache.isTidy(POM + " "));
+    }
+
+    @Test
+    void doesNotKnowPomOfOtherConfiguration() throws IOException {
+        new TidyCache(directory, "1.0").markTidy(POM);
+        assertFalse(new TidyCache(directory, "2.0").isTidy(POM));
+    }
+}
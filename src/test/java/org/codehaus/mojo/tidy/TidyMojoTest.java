@@ -0,0 +1,94 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TidyMojoTest {
+    private static final String POM = "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <version>1.0</version>\n"
+            + "</project>\n";
+
+    @TempDir
+    File directory;
+
+    @Test
+    void writesMetricsAfterGoalHasBeenExecutedForEveryProject() throws Exception {
+        MavenProject rootProject = createProject("root");
+        MavenProject module = createProject("root/module");
+        MavenSession session =
+                new MavenSession(null, null, new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        session.setProjects(Arrays.asList(rootProject, module));
+        File metricsFile = new File(directory, "root/target/tidy-metrics.json");
+
+        execute(new PomMojo(), session, rootProject);
+        execute(new CheckMojo(), session, rootProject);
+        execute(new CheckMojo(), session, rootProject);
+        assertFalse(metricsFile.exists());
+
+        execute(new CheckMojo(), session, module);
+        assertTrue(metricsFile.exists());
+    }
+
+    private MavenProject createProject(String name) throws Exception {
+        File pomFile = new File(directory, name + "/pom.xml");
+        Files.createDirectories(pomFile.getParentFile().toPath());
+        Files.write(pomFile.toPath(), new PomTidy().tidy(POM).getBytes(UTF_8));
+        MavenProject project = new MavenProject();
+        project.setGroupId("org.example");
+        project.setArtifactId(pomFile.getParentFile().getName());
+        project.setVersion("1.0");
+        project.setFile(pomFile);
+        project.getBuild().setDirectory(new File(pomFile.getParentFile(), "target").getPath());
+        return project;
+    }
+
+    private static void execute(TidyMojo mojo, MavenSession session, MavenProject project) throws Exception {
+        mojo.session = session;
+        mojo.project = project;
+        set(mojo, "pomFile", project.getFile());
+        set(mojo, "metrics", true);
+        mojo.execute();
+    }
+
+    private static void set(TidyMojo mojo, String name, Object value) throws Exception {
+        Field field = TidyMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+}
@@ -0,0 +1,102 @@
+package org.codehaus.mojo.tidy;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class WatchMojoTest {
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static final String UNTIDY_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <version>1.0</version>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    private Thread watchingThread;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void stopWatching() throws Exception {
+        if (watchingThread != null) {
+            watchingThread.interrupt();
+            watchingThread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            assertFalse(watchingThread.isAlive());
+        }
+    }
+
+    @Test
+    void keepsWatchingAfterTruncatedPom() throws Exception {
+        Path pomFile = write(UNTIDY_POM);
+        startWatching(pomFile);
+
+        write(UNTIDY_POM.substring(0, UNTIDY_POM.indexOf("<artifactId>") + 5));
+        Thread.sleep(1000);
+        write(UNTIDY_POM);
+
+        String tidyPom = new PomTidy().tidy(UNTIDY_POM);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!tidyPom.equals(read(pomFile)) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(tidyPom, read(pomFile));
+    }
+
+    private void startWatching(Path pomFile) throws Exception {
+        WatchMojo mojo = new WatchMojo();
+        Field pomFileField = TidyMojo.class.getDeclaredField("pomFile");
+        pomFileField.setAccessible(true);
+        pomFileField.set(mojo, pomFile.toFile());
+        watchingThread = new Thread(() -> {
+            try {
+                mojo.execute();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        watchingThread.start();
+        // wait for the watch service, which is registered by the watching thread
+        Thread.sleep(500);
+    }
+
+    private Path write(String pom) throws Exception {
+        return Files.write(directory.resolve("pom.xml").toAbsolutePath().normalize(), pom.getBytes(UTF_8));
+    }
+
+    private String read(Path pomFile) throws Exception {
+        return new String(Files.readAllBytes(pomFile), UTF_8);
+    }
+}
@@ -0,0 +1,194 @@
+package org.codehaus.mojo.tidy.cli;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.codehaus.mojo.tidy.task.PomTidy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PomTidyCliTest {
+    private static final String UNTIDY_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+            + "  <version>1.0</version>\n"
+            + "  <artifactId>example</artifactId>\n"
+            + "  <groupId>org.example</groupId>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tidiesPomsOfDirectory() throws Exception {
+        Path pom = write("pom.xml", UNTIDY_POM);
+        Path modulePom = write("module/pom.xml", UNTIDY_POM);
+        Path artifactPom = write("repository/example-1.0.pom", UNTIDY_POM);
+        Path otherFile = write("module/other.xml", UNTIDY_POM);
+        Path hiddenPom = write(".git/pom.xml", UNTIDY_POM);
+
+        assertEquals(0, run(directory.toString()));
+
+        String tidyPom = new PomTidy().tidy(UNTIDY_POM);
+        assertEquals(tidyPom, read(pom));
+        assertEquals(tidyPom, read(modulePom));
+        assertEquals(tidyPom, read(artifactPom));
+        assertEquals(UNTIDY_POM, read(otherFile));
+        assertEquals(UNTIDY_POM, read(hiddenPom));
+        assertTrue(out.toString().contains("Rewrote 3 of 3 POMs, 0 failed."), out.toString());
+    }
+
+    @Test
+    void tidiesPomsThatMatchGlob() throws Exception {
+        Path modulePom = write("modules/a/pom.xml", UNTIDY_POM);
+        Path otherPom = write("other/pom.xml", UNTIDY_POM);
+
+        assertEquals(0, run(directory + "/modules/**/pom.xml"));
+
+        assertEquals(new PomTidy().tidy(UNTIDY_POM), read(modulePom));
+        assertEquals(UNTIDY_POM, read(otherPom));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void doesNotFollowLinksToDirectories() throws Exception {
+        Path modulePom = write("module/pom.xml", UNTIDY_POM);
+        Files.createSymbolicLink(directory.resolve("module/parent"), directory);
+
+        assertEquals(0, run(directory.toString()));
+
+        assertEquals(new PomTidy().tidy(UNTIDY_POM), read(modulePom));
+        assertTrue(out.toString().contains("Rewrote 1 of 1 POMs, 0 failed."), out.toString());
+    }
+
+    @Test
+    void keepsEncodingOfPom() throws Exception {
+        String pom = UNTIDY_POM.replace("UTF-8", "ISO-8859-1").replace("example", "\u00e6\u00f8\u00e5");
+        Path pomFile = directory.resolve("pom.xml");
+        Files.write(pomFile, pom.getBytes(ISO_8859_1));
+
+        assertEquals(0, run(pomFile.toString()));
+
+        assertEquals(new PomTidy().tidy(pom), new String(Files.readAllBytes(pomFile), ISO_8859_1));
+    }
+
+    @Test
+    void declaresEncodingOfUtf16PomWithoutXmlDeclaration() throws Exception {
+        String pom = UNTIDY_POM.substring(UNTIDY_POM.indexOf("<project"));
+        Path pomFile = directory.resolve("pom.xml");
+        Files.write(pomFile, pom.getBytes(UTF_16));
+
+        assertEquals(0, run(pomFile.toString()));
+
+        String tidyPom = new String(Files.readAllBytes(pomFile), UTF_16);
+        assertTrue(tidyPom.startsWith("<?xml version=\"1.0\" encoding=\"UTF-16\"?>\n<project"), tidyPom);
+        assertEquals(new PomTidy().tidy(pom).replace("UTF-8", "UTF-16"), tidyPom);
+    }
+
+    @Test
+    void checksPomsWithoutRewritingThem() throws Exception {
+        Path pom = write("pom.xml", UNTIDY_POM);
+
+        assertEquals(1, run("--check", pom.toString()));
+
+        assertEquals(UNTIDY_POM, read(pom));
+        assertTrue(out.toString().contains(pom + ": not tidy at line 2, column 51."), out.toString());
+    }
+
+    @Test
+    void checksTidyPoms() throws Exception {
+        Path pom = write("pom.xml", new PomTidy().tidy(UNTIDY_POM));
+
+        assertEquals(0, run("--check", pom.toString()));
+    }
+
+    @Test
+    void reportsPomsThatCannotBeTidied() throws Exception {
+        Path invalidPom = write("invalid/pom.xml", "<project>");
+        write("valid/pom.xml", UNTIDY_POM);
+
+        assertEquals(1, run(directory.toString()));
+
+        assertTrue(err.toString().startsWith(invalidPom + ": "), err.toString());
+        assertTrue(out.toString().contains("Rewrote 1 of 2 POMs, 1 failed."), out.toString());
+    }
+
+    @Test
+    void doesNotRewritePomWithInvalidBytes() throws Exception {
+        byte[] pom = UNTIDY_POM.replace("example", "\u00e6").getBytes(ISO_8859_1);
+        Path pomFile = directory.resolve("pom.xml");
+        Files.write(pomFile, pom);
+
+        assertEquals(1, run(pomFile.toString()));
+
+        assertArrayEquals(pom, Files.readAllBytes(pomFile));
+        assertTrue(err.toString().contains("invalid in its encoding"), err.toString());
+    }
+
+    @Test
+    void reportsPomsThatExceedLimits() throws Exception {
+        Path pom = write("pom.xml", UNTIDY_POM);
+
+        assertEquals(1, run("--max-depth=1", pom.toString()));
+
+        assertEquals(UNTIDY_POM, read(pom));
+        assertTrue(err.toString().contains("nested deeper than the limit of 1"), err.toString());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertEquals(2, run("--unknown", directory.toString()));
+        assertEquals(2, run("--check"));
+        assertEquals(2, run("--timeout=-1", directory.toString()));
+        assertTrue(err.toString().contains("Usage:"), err.toString());
+    }
+
+    private int run(String... args) {
+        return new PomTidyCli(new PrintStream(out, true), new PrintStream(err, true)).run(args);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(UTF_8));
+    }
+
+    private String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), UTF_8);
+    }
+}
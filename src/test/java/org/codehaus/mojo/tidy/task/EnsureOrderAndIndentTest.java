@@ -0,0 +1,137 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnsureOrderAndIndentTest {
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(
+            strings = {
+                "add-xml-declaration/pom.xml",
+                "complete-pom/pom.xml",
+                "complete-pom/pom-expected.xml",
+                "do-not-mix-tab-and-spaces/pom.xml",
+                "groupid-artifactid-version/pom.xml",
+                "plugin-config-with-maven-element-names/pom.xml",
+                "pom-space-indent/pom.xml",
+                "pom-tab-indent/pom.xml",
+                "pom-with-comments/pom.xml",
+                "pom-with-crlf/pom.xml",
+                "pom-with-line-without-indent/pom.xml",
+                "pom-with-profiles/pom.xml",
+                "pom-with-reporting/pom.xml",
+                "project-single-line/pom.xml",
+                "project-support-4-1-0-attributes/pom.xml",
+                "project-support-4-1-0-attributes-with-unordered-nodes/pom.xml",
+                "project-support-4-1-0-model-version/pom.xml",
+                "fixes/order-and-indent-start-element-of-scope/property-ending-with-dependency.pom.xml",
+                "fixes/order-and-indent-start-element-of-scope/property-ending-with-plugin.pom.xml"
+            })
+    void generatesSamePomAsChainedSectionSorters(String name) throws IOException, XMLStreamException {
+        String pom = readPom(name);
+        Format format = new FormatIdentifier().identifyFormat(pom);
+        String expected = new ChainedEnsureOrderAndIndent().tidyPom(pom, format);
+        String actual = new EnsureOrderAndIndent().tidyPom(pom, format);
+        assertEquals(withTrailingNewLine(expected, format), withTrailingNewLine(actual, format));
+        assertEquals(actual, new EnsureOrderAndIndent(OrderingRules.getDefault(), 0).tidyPom(pom, format));
+    }
+
+    @Test
+    void formatsLargePomInParallelLikeSingleThreaded() throws XMLStreamException {
+        StringBuilder pom = new StringBuilder("<project>\n  <dependencies>\n");
+        appendDependencies(pom, "    ", 1000);
+        pom.append("  </dependencies>\n  <profiles>\n");
+        for (int i = 0; i < 20; ++i) {
+            pom.append("    <profile>\n      <id>profile-").append(i).append("</id>\n      <dependencies>\n");
+            appendDependencies(pom, "        ", 50);
+            pom.append("      </dependencies>\n      <build>\n        <plugins>\n");
+            pom.append("          <plugin>\n            <version>1.0</version>\n");
+            pom.append("            <artifactId>plugin-").append(i).append("</artifactId>\n          </plugin>\n");
+            pom.append("        </plugins>\n      </build>\n    </profile>\n");
+        }
+        pom.append("  </profiles>\n  <modelVersion>4.0.0</modelVersion>\n</project>\n");
+        assertTrue(pom.length() >= EnsureOrderAndIndent.PARALLEL_THRESHOLD);
+        Format format = new FormatIdentifier().identifyFormat(pom.toString());
+
+        String singleThreaded = new EnsureOrderAndIndent(OrderingRules.getDefault(), Integer.MAX_VALUE)
+                .tidyPom(pom.toString(), format);
+        String parallel = new EnsureOrderAndIndent().tidyPom(pom.toString(), format);
+
+        assertEquals(singleThreaded, parallel);
+        assertEquals(
+                findViolations(new EnsureOrderAndIndent(OrderingRules.getDefault(), Integer.MAX_VALUE), pom, format),
+                findViolations(new EnsureOrderAndIndent(), pom, format));
+    }
+
+    private List<String> findViolations(EnsureOrderAndIndent task, CharSequence pom, Format format)
+            throws XMLStreamException {
+        PomDocument document = new PomDocument(pom.toString(), format);
+        document.recordViolations();
+        task.tidyPom(document);
+        List<String> violations = new ArrayList<>();
+        for (TidyViolation violation : document.findViolations()) {
+            violations.add(violation + " to line " + violation.getEndLine() + "\n" + violation.getDiff());
+        }
+        assertEquals(4021, violations.size());
+        return violations;
+    }
+
+    private void appendDependencies(StringBuilder pom, String indent, int numDependencies) {
+        for (int i = 0; i < numDependencies; ++i) {
+            pom.append(indent).append("<dependency>\n");
+            pom.append(indent).append("  <version>1.").append(i).append("</version>\n");
+            pom.append(indent).append("  <artifactId>artifact-").append(i).append("</artifactId>\n");
+            pom.append(indent).append("  <exclusions>\n").append(indent).append("    <exclusion>\n");
+            pom.append(indent).append("      <artifactId>excluded</artifactId>\n");
+            pom.append(indent).append("      <groupId>org.example</groupId>\n");
+            pom.append(indent).append("    </exclusion>\n").append(indent).append("  </exclusions>\n");
+            pom.append(indent).append("  <groupId>org.example</groupId>\n");
+            pom.append(indent).append("</dependency>\n");
+        }
+    }
+
+    /**
+     * The chained section sorters may drop the whitespace after the project's end tag. This is irrelevant because
+     * {@link EnsureTrailingNewLine} normalizes it anyway.
+     */
+    private String withTrailingNewLine(String pom, Format format) throws XMLStreamException {
+        return new EnsureTrailingNewLine().tidyPom(pom, format);
+    }
+
+    private String readPom(String name) throws IOException {
+        InputStream is = getClass().getResourceAsStream(name);
+        return IOUtil.toString(is);
+    }
+}
@@ -0,0 +1,64 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FormatIdentifierTest {
+    @Test
+    void identifiesLineFeed() {
+        assertEquals("\n", identifyLineSeparator("<project>\n  <modelVersion>\r\n"));
+    }
+
+    @Test
+    void identifiesCarriageReturnAndLineFeed() {
+        assertEquals("\r\n", identifyLineSeparator("<project>\r\n  <modelVersion>\n"));
+    }
+
+    @Test
+    void identifiesCarriageReturn() {
+        assertEquals("\r", identifyLineSeparator("<project>\r  <modelVersion>\r\n"));
+    }
+
+    @Test
+    void usesForcedLineSeparator() {
+        Format format = new FormatIdentifier(LineSeparator.CRLF).identifyFormat("<project>\n</project>");
+        assertEquals("\r\n", format.getLineSeparator());
+    }
+
+    @Test
+    void identifiesFormatWithFactory() {
+        assertEquals("\r", FormatIdentifier.identify("<project>\r</project>", null).getLineSeparator());
+        assertEquals("\n", FormatIdentifier.identify("<project></project>", LineSeparator.LF).getLineSeparator());
+    }
+
+    @Test
+    void rejectsPomWithoutLineSeparator() {
+        assertThrows(IllegalArgumentException.class, () -> identifyLineSeparator("<project></project>"));
+    }
+
+    private String identifyLineSeparator(String pom) {
+        return new FormatIdentifier().identifyFormat(pom).getLineSeparator();
+    }
+}
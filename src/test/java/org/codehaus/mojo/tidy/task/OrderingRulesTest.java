@@ -0,0 +1,113 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderingRulesTest {
+    private static final String POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\""
+            + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+            + " xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0"
+            + " https://maven.apache.org/xsd/maven-4.0.0.xsd\">\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "\n"
+            + "  <build>\n"
+            + "    <plugins>\n"
+            + "      <plugin>\n"
+            + "        <version>1.0</version>\n"
+            + "        <artifactId>a</artifactId>\n"
+            + "        <executions>\n"
+            + "          <execution>\n"
+            + "            <goals>\n"
+            + "              <goal>g</goal>\n"
+            + "            </goals>\n"
+            + "            <phase>verify</phase>\n"
+            + "            <id>x</id>\n"
+            + "          </execution>\n"
+            + "        </executions>\n"
+            + "      </plugin>\n"
+            + "    </plugins>\n"
+            + "  </build>\n"
+            + "</project>\n";
+
+    @Test
+    void compilesDefinitionOnlyOnce() {
+        String definition = "execution = id, phase | goals";
+        assertSame(OrderingRules.compile(definition), OrderingRules.compile(definition));
+    }
+
+    @Test
+    void usesDefaultRulesForEmptyDefinition() {
+        assertSame(OrderingRules.getDefault(), OrderingRules.compile(" \n# no rules\n"));
+    }
+
+    @Test
+    void sortsElementsOfAdditionalScope() throws XMLStreamException {
+        OrderingRules rules = OrderingRules.compile("# executions\nexecution = id, phase | goals");
+        String tidyPom = new PomTidy(null, rules).tidy(POM);
+        assertEquals(
+                POM.replace(
+                                "            <goals>\n"
+                                        + "              <goal>g</goal>\n"
+                                        + "            </goals>\n"
+                                        + "            <phase>verify</phase>\n"
+                                        + "            <id>x</id>\n",
+                                "            <id>x</id>\n"
+                                        + "            <phase>verify</phase>\n"
+                                        + "\n"
+                                        + "            <goals>\n"
+                                        + "              <goal>g</goal>\n"
+                                        + "            </goals>\n")
+                        .replace(
+                                "        <version>1.0</version>\n        <artifactId>a</artifactId>\n",
+                                "        <artifactId>a</artifactId>\n        <version>1.0</version>\n"),
+                tidyPom);
+    }
+
+    @Test
+    void replacesDefaultRuleOfSameScope() throws XMLStreamException {
+        OrderingRules rules = OrderingRules.compile("plugin = version, artifactId");
+        String tidyPom = new PomTidy(null, rules).tidy(POM);
+        assertEquals(POM, tidyPom);
+    }
+
+    @Test
+    void rejectsRuleWithoutScope() {
+        assertThrows(IllegalArgumentException.class, () -> OrderingRules.compile("id, phase"));
+    }
+
+    @Test
+    void rejectsRuleWithEmptyGroup() {
+        assertThrows(IllegalArgumentException.class, () -> OrderingRules.compile("execution = id || phase"));
+    }
+
+    @Test
+    void rejectsRuleWithDuplicateElement() {
+        assertThrows(IllegalArgumentException.class, () -> OrderingRules.compile("execution = id, phase, id"));
+    }
+}
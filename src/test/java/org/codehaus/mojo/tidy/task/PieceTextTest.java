@@ -0,0 +1,86 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PieceTextTest {
+    private static final String POM = "<project>\n  <modelVersion>4.0.0</modelVersion>\n</project>";
+
+    @Test
+    void concatenatesPieces() throws Exception {
+        PieceText text = new PieceText()
+                .append(POM, 0, 9)
+                .append("\n  ")
+                .append(new PieceText().append(POM, 12, 46).append(""), 0, 34)
+                .append(POM, 46, POM.length());
+
+        assertEquals(POM.length(), text.length());
+        assertEquals(POM, text.toString());
+        StringWriter writer = new StringWriter();
+        text.appendTo(writer);
+        assertEquals(POM, writer.toString());
+    }
+
+    @Test
+    void readsCharactersOfAllPieces() {
+        PieceText text = new PieceText().append("ab").append("cde", 1, 3).append("f");
+        StringBuilder characters = new StringBuilder();
+        for (int i = 0; i < text.length(); ++i) {
+            characters.append(text.charAt(i));
+        }
+        assertEquals("abdef", characters.toString());
+    }
+
+    @Test
+    void createsSubSequencesThatSpanPieces() {
+        PieceText text = new PieceText().append("ab").append("cd").append("ef");
+        assertEquals("bcde", text.subSequence(1, 5).toString());
+        assertEquals("d", text.subSequence(3, 4).toString());
+        assertEquals("", text.subSequence(2, 2).toString());
+    }
+
+    @Test
+    void trimsWhitespaceOfAllPieces() {
+        PieceText text = new PieceText().append(" ").append("\n  <a/>").append("<b/> \n").append("\t");
+        assertEquals("<a/><b/>", text.trim().toString());
+        assertEquals(0, new PieceText().append("  ").append("\n").trim().length());
+        PieceText trimmed = new PieceText().append("<a/>");
+        assertSame(trimmed, trimmed.trim());
+    }
+
+    @Test
+    void returnsSourceOfSinglePiece() {
+        assertSame(POM, PieceText.of(POM).toString());
+    }
+
+    @Test
+    void findsDifferenceToString() {
+        assertEquals(-1, new PieceText().append(POM, 12, 26).findDifference(POM, 12));
+        assertEquals(-1, new PieceText().append("<modelVersion>").findDifference(POM, 12));
+        assertEquals(13, new PieceText().append("<model").append("Versions>").findDifference(POM, 12));
+        assertEquals(2, new PieceText().append("t>x").findDifference(POM, POM.length() - 2));
+    }
+}
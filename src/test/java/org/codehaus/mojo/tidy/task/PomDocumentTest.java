@@ -0,0 +1,151 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PomDocumentTest {
+    private static final String POM = "<project>\n  <modelVersion>4.0.0</modelVersion>\n</project>";
+
+    @Test
+    void appliesEditsInOrderOfOffsets() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(POM.length(), POM.length(), "\n", "rule");
+        document.insert(0, "<?xml version=\"1.0\"?>\n", "rule");
+        document.replace(12, 26, "<version>", "rule");
+        assertEquals(
+                "<?xml version=\"1.0\"?>\n<project>\n  <version>4.0.0</modelVersion>\n</project>\n",
+                document.applyEdits());
+    }
+
+    @Test
+    void ignoresEditsThatDoNotChangeThePom() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(0, 9, "<project>", "rule");
+        assertSame(POM, document.applyEdits());
+    }
+
+    @Test
+    void rejectsOverlappingEdits() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(0, 12, "<project>", "rule");
+        document.replace(9, 24, "<version>", "rule");
+        assertThrows(IllegalStateException.class, document::applyEdits);
+    }
+
+    @Test
+    void findsNoDifferenceWithoutEdits() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(0, 9, "<project>", "rule");
+        assertEquals(-1, document.findFirstDifference());
+    }
+
+    @Test
+    void findsFirstDifferenceInsideAnEdit() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(POM.length(), POM.length(), "\n", "rule");
+        document.replace(12, 26, "<modelVersions>", "rule");
+        assertEquals(25, document.findFirstDifference());
+    }
+
+    @Test
+    void findsFirstDifferenceAfterAnEdit() {
+        PomDocument document = new PomDocument("<a/><a/><a/>", new Format("\n"));
+        document.replace(0, 4, "", "rule");
+        assertEquals(8, document.findFirstDifference());
+    }
+
+    @Test
+    void findsDifferenceAtTheEndOfThePom() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.insert(POM.length(), "\n", "rule");
+        assertEquals(POM.length(), document.findFirstDifference());
+    }
+
+    @Test
+    void findsViolationsWithTheirRegionsAndDiffs() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.insert(POM.length(), "\n", "trailing line break");
+        document.insert(0, "<?xml version=\"1.0\"?>\n", "XML declaration");
+        document.replace(9, 47, "\n  <modelVersion>4.1.0</modelVersion>\n", "order of /project");
+
+        List<TidyViolation> violations = document.findViolations();
+
+        assertEquals(3, violations.size());
+        assertViolation(
+                "XML declaration",
+                1,
+                1,
+                1,
+                1,
+                "@@ -1,1 +1,2 @@\n-<project>\n+<?xml version=\"1.0\"?>\n+<project>\n",
+                violations.get(0));
+        assertViolation(
+                "order of /project",
+                2,
+                19,
+                2,
+                20,
+                "@@ -2,1 +3,1 @@\n-  <modelVersion>4.0.0</modelVersion>\n+  <modelVersion>4.1.0</modelVersion>\n",
+                violations.get(1));
+        assertViolation(
+                "trailing line break",
+                3,
+                11,
+                3,
+                11,
+                "@@ -3,1 +4,1 @@\n-</project>\n+</project>\n",
+                violations.get(2));
+    }
+
+    @Test
+    void findsNoViolationsWithoutEdits() {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        document.replace(0, 9, "<project>", "rule");
+        assertEquals(0, document.findViolations().size());
+    }
+
+    private static void assertViolation(
+            String rule, int line, int column, int endLine, int endColumn, String diff, TidyViolation violation) {
+        assertEquals(rule, violation.getRule());
+        assertEquals(line, violation.getLine());
+        assertEquals(column, violation.getColumn());
+        assertEquals(endLine, violation.getEndLine());
+        assertEquals(endColumn, violation.getEndColumn());
+        assertEquals(diff, violation.getDiff());
+    }
+
+    @Test
+    void findsStartOfLine() {
+        PomDocument document = new PomDocument("<a>\r\n  <b/>\r  <c/>\n</a>", new Format("\n"));
+        assertEquals(0, document.getStartOfLine(0));
+        assertEquals(0, document.getStartOfLine(4));
+        assertEquals(5, document.getStartOfLine(5));
+        assertEquals(5, document.getStartOfLine(11));
+        assertEquals(12, document.getStartOfLine(14));
+        assertEquals(19, document.getStartOfLine(22));
+    }
+}
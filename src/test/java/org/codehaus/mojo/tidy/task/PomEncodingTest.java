@@ -0,0 +1,108 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
+import java.nio.charset.CharacterCodingException;
+
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PomEncodingTest {
+    private static final String LATIN_1_POM =
+            "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<project><name>Sm\u00f8rrebr\u00f8d</name></project>\n";
+
+    @Test
+    void usesUtf8ByDefault() {
+        assertEquals(UTF_8, PomEncoding.detect("<project/>".getBytes(UTF_8)).getCharset());
+        assertEquals(UTF_8, PomEncoding.detect("<?xml version=\"1.0\"?><project/>".getBytes(UTF_8)).getCharset());
+        assertEquals(UTF_8, PomEncoding.detect(new byte[0]).getCharset());
+    }
+
+    @Test
+    void usesEncodingOfXmlDeclaration() throws CharacterCodingException {
+        byte[] pom = LATIN_1_POM.getBytes(ISO_8859_1);
+        PomEncoding encoding = PomEncoding.detect(pom);
+        assertEquals(ISO_8859_1, encoding.getCharset());
+        assertEquals(LATIN_1_POM, encoding.decode(pom));
+    }
+
+    @Test
+    void usesByteOrderMark() throws CharacterCodingException {
+        byte[] pom = concat(new byte[] {(byte) 0xFF, (byte) 0xFE}, "<project/>".getBytes(UTF_16LE));
+        PomEncoding encoding = PomEncoding.detect(pom);
+        assertEquals(UTF_16LE, encoding.getCharset());
+        assertEquals("<project/>", encoding.decode(pom));
+    }
+
+    @Test
+    void detectsUtf16WithoutByteOrderMark() {
+        byte[] pom = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><project/>".getBytes(UTF_16BE);
+        assertEquals(UTF_16BE, PomEncoding.detect(pom).getCharset());
+    }
+
+    @Test
+    void writesByteOrderMarkAgain() throws Exception {
+        byte[] pom = concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, "<project/>".getBytes(UTF_8));
+        PomEncoding encoding = PomEncoding.detect(pom);
+        assertEquals("<project/>", encoding.decode(pom));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (Writer writer = encoding.createWriter(out)) {
+            writer.write("<project/>");
+        }
+        assertArrayEquals(pom, out.toByteArray());
+    }
+
+    @Test
+    void declaresUtf16WithByteOrderMark() {
+        byte[] pom = concat(new byte[] {(byte) 0xFE, (byte) 0xFF}, "<project/>".getBytes(UTF_16BE));
+        assertEquals("UTF-16", PomEncoding.detect(pom).getDeclaredName());
+        assertEquals("UTF-8", PomEncoding.detect("<project/>".getBytes(UTF_8)).getDeclaredName());
+        assertEquals("ISO-8859-1", PomEncoding.detect(LATIN_1_POM.getBytes(ISO_8859_1)).getDeclaredName());
+    }
+
+    @Test
+    void rejectsInvalidBytes() {
+        byte[] pom = concat("<project><name>".getBytes(UTF_8), new byte[] {(byte) 0xC3, '<', '/'});
+        PomEncoding encoding = PomEncoding.detect(pom);
+        assertThrows(CharacterCodingException.class, () -> encoding.decode(pom));
+    }
+
+    @Test
+    void rejectsUnsupportedEncoding() {
+        byte[] pom = "<?xml version=\"1.0\" encoding=\"no-such-charset\"?><project/>".getBytes(UTF_8);
+        assertThrows(IllegalArgumentException.class, () -> PomEncoding.detect(pom));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = new byte[first.length + second.length];
+        System.arraycopy(first, 0, bytes, 0, first.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
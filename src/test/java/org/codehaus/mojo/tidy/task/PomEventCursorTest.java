@@ -0,0 +1,98 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.Test;
+
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PomEventCursorTest {
+    private static final String POM = "<project root=\"true\">\n"
+            + "  <name>A &amp; B<!-- comment --> &#x43;<![CDATA[ <D> ]]></name>\n"
+            + "  <modules><module>a</module></modules>\n"
+            + "</project>";
+
+    @Test
+    void movesOverElements() throws Exception {
+        PomEventCursor cursor = createCursor();
+        assertEquals(START_ELEMENT, nextElement(cursor));
+        assertEquals("project", cursor.getLocalName());
+        assertEquals(0, cursor.getStartOffset());
+        assertEquals(21, cursor.getEndOffset());
+        assertEquals(START_ELEMENT, nextElement(cursor));
+        assertEquals("name", cursor.getLocalName());
+        assertEquals(24, cursor.getStartOffset());
+    }
+
+    @Test
+    void readsAttributes() throws Exception {
+        PomEventCursor cursor = createCursor();
+        nextElement(cursor);
+        assertEquals("true", cursor.getAttributeValue(null, "root"));
+        assertNull(cursor.getAttributeValue(null, "other"));
+    }
+
+    @Test
+    void readsElementText() throws Exception {
+        PomEventCursor cursor = createCursor();
+        nextElement(cursor);
+        nextElement(cursor);
+        assertEquals("A & B C <D> ", cursor.getElementText());
+        assertEquals(END_ELEMENT, cursor.getEventType());
+        assertEquals("name", cursor.getLocalName());
+    }
+
+    @Test
+    void rejectsElementTextWithElements() throws Exception {
+        PomEventCursor cursor = createCursor();
+        do {
+            nextElement(cursor);
+        } while (!cursor.getLocalName().equals("modules"));
+        assertThrows(XMLStreamException.class, cursor::getElementText);
+    }
+
+    @Test
+    void countsReadEvents() throws Exception {
+        PomDocument document = new PomDocument(POM, new Format("\n"));
+        PomEventCursor cursor = document.createEventCursor();
+        cursor.next();
+        cursor.next();
+        document.createEventCursor().next();
+        assertEquals(3, document.getNumberOfReadEvents());
+    }
+
+    private static PomEventCursor createCursor() throws XMLStreamException {
+        return new PomDocument(POM, new Format("\n")).createEventCursor();
+    }
+
+    private static int nextElement(PomEventCursor cursor) {
+        int type = cursor.next();
+        while (type != START_ELEMENT && type != END_ELEMENT) {
+            type = cursor.next();
+        }
+        return type;
+    }
+}
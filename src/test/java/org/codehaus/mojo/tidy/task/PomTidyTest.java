@@ -23,14 +23,35 @@ import javax.xml.stream.XMLStreamException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.List;
 
 import org.codehaus.plexus.util.IOUtil;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class PomTidyTest {
+    private static final String DEPENDENCIES_POM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<project>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <dependencies>\n"
+            + "    <dependency>\n"
+            + "      <artifactId>a</artifactId>\n"
+            + "      <groupId>g</groupId>\n"
+            + "    </dependency>\n"
+            + "    <dependency>\n"
+            + "      <version>2</version>\n"
+            + "      <artifactId>b</artifactId>\n"
+            + "      <groupId>g</groupId>\n"
+            + "    </dependency>\n"
+            + "  </dependencies>\n"
+            + "</project>\n";
 
     @ParameterizedTest(name = "{0}")
     @ValueSource(
@@ -44,6 +65,7 @@ class PomTidyTest {
                 "pom-tab-indent",
                 "pom-with-comments",
                 "pom-with-crlf",
+                "pom-with-exclusions",
                 "pom-with-line-without-indent",
                 "pom-with-profiles",
                 "pom-with-reporting",
@@ -58,6 +80,167 @@ class PomTidyTest {
         assertEquals(readPom(name, "pom-expected.xml"), tidyPom);
     }
 
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"complete-pom", "pom-with-crlf", "pom-with-profiles", "project-single-line"})
+    void writesTidyPom(String name) throws IOException, XMLStreamException {
+        String pom = readPom(name, "pom.xml");
+        StringWriter tidyPom = new StringWriter();
+        new PomTidy().tidy(pom, tidyPom);
+        assertEquals(readPom(name, "pom-expected.xml"), tidyPom.toString());
+    }
+
+    @Test
+    void writesUntidyPom() throws IOException, XMLStreamException {
+        StringWriter tidyPom = new StringWriter();
+        assertTrue(new PomTidy().writeIfUntidy(readPom("complete-pom", "pom.xml"), () -> tidyPom));
+        assertEquals(readPom("complete-pom", "pom-expected.xml"), tidyPom.toString());
+    }
+
+    @Test
+    void doesNotWriteTidyPom() throws IOException, XMLStreamException {
+        String pom = readPom("complete-pom", "pom-expected.xml");
+        assertFalse(new PomTidy().writeIfUntidy(pom, () -> {
+            throw new AssertionError("The writer has been requested.");
+        }));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"add-xml-declaration", "complete-pom", "pom-space-indent", "pom-with-profiles"})
+    void findsFirstDifference(String name) throws IOException, XMLStreamException {
+        String pom = readPom(name, "pom.xml");
+        String tidyPom = readPom(name, "pom-expected.xml");
+        int expectedDifference = 0;
+        while (expectedDifference < pom.length()
+                && pom.charAt(expectedDifference) == tidyPom.charAt(expectedDifference)) {
+            ++expectedDifference;
+        }
+        assertEquals(expectedDifference, new PomTidy().findFirstDifference(pom));
+        assertEquals(-1, new PomTidy().findFirstDifference(tidyPom));
+    }
+
+    @Test
+    void findsViolationsOfNestedSections() throws XMLStreamException {
+        String pom = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<project xmlns=\"http://maven.apache.org/POM/4.0.0\""
+                + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\""
+                + " xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0"
+                + " https://maven.apache.org/xsd/maven-4.0.0.xsd\">\n"
+                + "  <modelVersion>4.0.0</modelVersion>\n"
+                + "\n"
+                + "  <artifactId>example</artifactId>\n"
+                + "  <groupId>org.example</groupId>\n"
+                + "\n"
+                + "  <dependencies>\n"
+                + "    <dependency>\n"
+                + "      <artifactId>a</artifactId>\n"
+                + "      <groupId>g</groupId>\n"
+                + "    </dependency>\n"
+                + "  </dependencies>\n"
+                + "\n"
+                + "  <build>\n"
+                + "    <plugins>\n"
+                + "      <plugin>\n"
+                + "        <version>1.0</version>\n"
+                + "        <artifactId>p</artifactId>\n"
+                + "      </plugin>\n"
+                + "    </plugins>\n"
+                + "  </build>\n"
+                + "</project>\n";
+
+        List<TidyViolation> violations = new PomTidy().findViolations(pom);
+
+        assertEquals(3, violations.size());
+        assertViolation("order and indent of /project", 5, 4, 6, 30, violations.get(0));
+        assertEquals(
+                "@@ -5,2 +5,2 @@\n"
+                        + "-  <artifactId>example</artifactId>\n"
+                        + "-  <groupId>org.example</groupId>\n"
+                        + "+  <groupId>org.example</groupId>\n"
+                        + "+  <artifactId>example</artifactId>\n",
+                violations.get(0).getDiff());
+        assertViolation("order and indent of dependency", 10, 8, 11, 24, violations.get(1));
+        assertViolation("order and indent of plugin", 18, 10, 19, 34, violations.get(2));
+    }
+
+    private static void assertViolation(
+            String rule, int line, int column, int endLine, int endColumn, TidyViolation violation) {
+        assertEquals(rule, violation.getRule());
+        assertEquals(line, violation.getLine(), violation.toString());
+        assertEquals(column, violation.getColumn(), violation.toString());
+        assertEquals(endLine, violation.getEndLine(), violation.toString());
+        assertEquals(endColumn, violation.getEndColumn(), violation.toString());
+    }
+
+    @Test
+    void describesPositionInLinesOfEverySeparator() {
+        assertEquals("line 3, column 2", PomTidy.describePosition("<project>\n  <a/>\n <b/>\n</project>", 18));
+        assertEquals("line 3, column 2", PomTidy.describePosition("<project>\r\n  <a/>\r\n <b/>\r\n</project>", 20));
+        assertEquals("line 3, column 2", PomTidy.describePosition("<project>\r  <a/>\r <b/>\r</project>", 18));
+    }
+
+    @Test
+    void tidiesSectionThatEnclosesRange() throws XMLStreamException {
+        String pom = DEPENDENCIES_POM.replace("<version>2</version>", "<version>2.1</version>");
+        int start = pom.indexOf("2.1");
+        List<TidyEdit> edits = new PomTidy().tidyRange(pom, start, start + 3);
+
+        assertEquals(
+                DEPENDENCIES_POM
+                        .replace("<version>2</version>", "<version>2.1</version>")
+                        .replace(
+                                "<version>2.1</version>\n      <artifactId>b</artifactId>\n      <groupId>g</groupId>",
+                                "<groupId>g</groupId>\n      <artifactId>b</artifactId>\n      <version>2.1</version>"),
+                applyEdits(pom, edits));
+        for (TidyEdit edit : edits) {
+            assertTrue(edit.getStart() > pom.indexOf("<artifactId>a</artifactId>"), edit.toString());
+        }
+    }
+
+    @Test
+    void doesNotParsePomAfterEnclosingSection() throws XMLStreamException {
+        String pom = DEPENDENCIES_POM.replace("</project>", "<unclosed>\n</project>");
+        int start = pom.indexOf("<artifactId>a</artifactId>");
+
+        String tidyPom = applyEdits(pom, new PomTidy().tidyRange(pom, start, start));
+
+        assertTrue(tidyPom.contains("<groupId>g</groupId>\n      <artifactId>a</artifactId>"), tidyPom);
+        assertThrows(XMLStreamException.class, () -> new PomTidy().tidy(pom));
+    }
+
+    @Test
+    void findsNoEditsOutsideOfSections() throws XMLStreamException {
+        assertTrue(new PomTidy().tidyRange(DEPENDENCIES_POM, 0, 5).isEmpty());
+        assertTrue(new PomTidy()
+                .tidyRange(DEPENDENCIES_POM, DEPENDENCIES_POM.length(), DEPENDENCIES_POM.length())
+                .isEmpty());
+        assertThrows(
+                IndexOutOfBoundsException.class,
+                () -> new PomTidy().tidyRange(DEPENDENCIES_POM, 0, DEPENDENCIES_POM.length() + 1));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"complete-pom", "pom-with-exclusions", "pom-with-profiles"})
+    void tidiesWholeProjectLikeTidy(String name) throws IOException, XMLStreamException {
+        String pom = readPom(name, "pom.xml");
+        int start = pom.indexOf("<project");
+        int end = pom.indexOf("</project>") + "</project>".length();
+        String tidyPom = applyEdits(pom, new PomTidy().tidyRange(pom, start, end));
+        assertEquals(getProjectContent(new PomTidy().tidy(pom)), getProjectContent(tidyPom));
+    }
+
+    private static String getProjectContent(String pom) {
+        return pom.substring(pom.indexOf('>', pom.indexOf("<project")), pom.indexOf("</project>"));
+    }
+
+    private static String applyEdits(String pom, List<TidyEdit> edits) {
+        StringBuilder tidyPom = new StringBuilder(pom);
+        for (int i = edits.size() - 1; i >= 0; --i) {
+            TidyEdit edit = edits.get(i);
+            tidyPom.replace(edit.getStart(), edit.getEnd(), edit.getReplacement());
+        }
+        return tidyPom.toString();
+    }
+
     private String readPom(String test, String filename) throws IOException {
         InputStream is = getClass().getResourceAsStream(test + "/" + filename);
         return IOUtil.toString(is);
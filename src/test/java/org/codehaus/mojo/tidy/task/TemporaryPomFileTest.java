@@ -0,0 +1,94 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TemporaryPomFileTest {
+    private static final String LATIN_1_POM =
+            "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<project><name>Sm\u00f8rrebr\u00f8d</name></project>\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesInEncodingThatPomHasBeenReadWith() throws IOException {
+        Path pomFile = directory.resolve("pom.xml");
+        Files.write(pomFile, LATIN_1_POM.getBytes(ISO_8859_1));
+        DecodedPom pom = DecodedPom.read(pomFile);
+        // the POM is saved in another encoding after it has been read
+        Files.write(pomFile, "<project/>\n".getBytes(UTF_8));
+
+        replacePom(new TemporaryPomFile(pomFile.toFile(), pom.getEncoding()), pom.getPom());
+
+        assertEquals(LATIN_1_POM, new String(Files.readAllBytes(pomFile), ISO_8859_1));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void replacesFileThatPomLinksTo() throws IOException {
+        Path linkedPomFile = Files.write(directory.resolve("pom-linked.xml"), "<project/>\n".getBytes(UTF_8));
+        Path pomFile = Files.createSymbolicLink(directory.resolve("pom.xml"), linkedPomFile.getFileName());
+        DecodedPom pom = DecodedPom.read(pomFile);
+
+        replacePom(new TemporaryPomFile(pomFile.toFile(), pom.getEncoding()), "<project></project>\n");
+
+        assertTrue(Files.isSymbolicLink(pomFile));
+        assertEquals("<project></project>\n", new String(Files.readAllBytes(linkedPomFile), UTF_8));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void keepsPermissionsOfPom() throws IOException {
+        Path pomFile = Files.write(directory.resolve("pom.xml"), "<project/>\n".getBytes(UTF_8));
+        Files.setPosixFilePermissions(pomFile, PosixFilePermissions.fromString("rw-rw-r--"));
+        DecodedPom pom = DecodedPom.read(pomFile);
+
+        replacePom(new TemporaryPomFile(pomFile.toFile(), pom.getEncoding()), "<project></project>\n");
+
+        assertEquals("rw-rw-r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(pomFile)));
+    }
+
+    private static void replacePom(TemporaryPomFile tidyPomFile, String tidyPom) throws IOException {
+        try {
+            try (Writer writer = tidyPomFile.createWriter()) {
+                writer.write(tidyPom);
+            }
+            tidyPomFile.replacePom();
+        } finally {
+            tidyPomFile.delete();
+        }
+    }
+}
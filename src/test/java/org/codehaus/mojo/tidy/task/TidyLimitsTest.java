@@ -0,0 +1,123 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import javax.xml.stream.XMLStreamException;
+
+import org.codehaus.mojo.tidy.task.TidyLimits.Limit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TidyLimitsTest {
+    private static final String POM = "<project>\n"
+            + "  <build>\n"
+            + "    <plugins>\n"
+            + "      <plugin>\n"
+            + "        <configuration>\n"
+            + "          <value>1</value>\n"
+            + "        </configuration>\n"
+            + "        <artifactId>example</artifactId>\n"
+            + "      </plugin>\n"
+            + "    </plugins>\n"
+            + "  </build>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "</project>\n";
+
+    @Test
+    void tidiesPomWithinLimits() throws XMLStreamException {
+        TidyLimits limits = TidyLimits.unlimited()
+                .withMaxLength(POM.length())
+                .withMaxDepth(6)
+                .withMaxEvents(100)
+                .withTimeoutMillis(60000);
+        assertEquals(new PomTidy().tidy(POM), createPomTidy(limits).tidy(POM));
+    }
+
+    @Test
+    void rejectsLongPom() {
+        TidyLimitExceededException e = assertThrows(
+                TidyLimitExceededException.class,
+                () -> createPomTidy(TidyLimits.unlimited().withMaxLength(100)).tidy(POM));
+        assertEquals(Limit.LENGTH, e.getLimit());
+        assertEquals(100, e.getMaximum());
+        assertEquals("The POM has " + POM.length() + " characters, more than the limit of 100.", e.getMessage());
+    }
+
+    @Test
+    void rejectsDeeplyNestedPom() {
+        TidyLimitExceededException e = assertThrows(
+                TidyLimitExceededException.class,
+                () -> createPomTidy(TidyLimits.unlimited().withMaxDepth(5)).findFirstDifference(POM));
+        assertEquals(Limit.DEPTH, e.getLimit());
+    }
+
+    @Test
+    void rejectsPomWithTooManyEvents() {
+        TidyLimitExceededException e = assertThrows(
+                TidyLimitExceededException.class,
+                () -> createPomTidy(TidyLimits.unlimited().withMaxEvents(20)).findViolations(POM));
+        assertEquals(Limit.EVENTS, e.getLimit());
+    }
+
+    @Test
+    void abortsPomThatTakesTooLong() {
+        StringBuilder pom = new StringBuilder("<project>\n  <dependencies>\n");
+        for (int i = 0; i < 20000; ++i) {
+            pom.append("    <dependency>\n      <artifactId>a").append(i).append("</artifactId>\n");
+            pom.append("      <groupId>g</groupId>\n    </dependency>\n");
+        }
+        pom.append("  </dependencies>\n</project>\n");
+
+        TidyLimitExceededException e = assertThrows(
+                TidyLimitExceededException.class,
+                () -> createPomTidy(TidyLimits.unlimited().withTimeoutMillis(1)).tidy(pom.toString()));
+        assertEquals(Limit.TIME, e.getLimit());
+    }
+
+    @Test
+    void tidiesHugePomWithDefaultLimits() throws XMLStreamException {
+        StringBuilder pom = new StringBuilder("<project>\n  <dependencyManagement>\n    <dependencies>\n");
+        for (int i = 0; pom.length() <= 16 * 1024 * 1024; ++i) {
+            pom.append("      <dependency>\n        <groupId>org.example</groupId>\n");
+            pom.append("        <artifactId>artifact-").append(i).append("</artifactId>\n");
+            pom.append("        <version>1.0</version>\n      </dependency>\n");
+        }
+        pom.append("    </dependencies>\n  </dependencyManagement>\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n</project>\n");
+
+        String tidyPom = createPomTidy(TidyLimits.getDefault()).tidy(pom.toString());
+
+        assertTrue(tidyPom.contains("<modelVersion>4.0.0</modelVersion>\n\n  <dependencyManagement>"));
+    }
+
+    @Test
+    void rejectsNegativeLimits() {
+        assertThrows(IllegalArgumentException.class, () -> TidyLimits.getDefault().withMaxDepth(-1));
+        assertThrows(IllegalArgumentException.class, () -> TidyLimits.getDefault().withTimeoutMillis(-1));
+    }
+
+    private static PomTidy createPomTidy(TidyLimits limits) {
+        return new PomTidy(null, OrderingRules.getDefault(), limits, new TidyResultCache(0));
+    }
+}
@@ -0,0 +1,122 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.codehaus.mojo.tidy.task.TidyMetrics.Measurement;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TidyMetricsTest {
+    @Test
+    void measuresTasksAndScopes() throws Exception {
+        TidyMetrics metrics = new TidyMetrics();
+        PomTidy pomTidy = new PomTidy(null, OrderingRules.getDefault(), new TidyResultCache(0));
+        pomTidy.setMetrics(metrics);
+        pomTidy.tidy(readPom("complete-pom"));
+        pomTidy.tidy(readPom("pom-with-profiles"));
+
+        assertEquals(2, metrics.getNumberOfPoms());
+        assertEquals(
+                asList(
+                        "EnsureOrderAndIndent",
+                        "EnsureSingleLineProjectStartTag",
+                        "EnsureTrailingNewLine",
+                        "EnsureXmlHeader"),
+                getNames(metrics.getTasks()));
+        Measurement orderAndIndent = metrics.getTasks().get(0);
+        assertEquals(2, orderAndIndent.getCount());
+        assertTrue(orderAndIndent.getEvents() > 0);
+        assertTrue(orderAndIndent.getWallTimeNanos() > 0);
+        assertTrue(getNames(metrics.getScopes()).containsAll(asList("/project", "/project/build", "dependency")));
+    }
+
+    @Test
+    void measuresAllocationsOfWorkerThreads() throws Exception {
+        StringBuilder pom = new StringBuilder("<project>\n  <modelVersion>4.0.0</modelVersion>\n  <dependencies>\n");
+        while (pom.length() < EnsureOrderAndIndent.PARALLEL_THRESHOLD) {
+            pom.append("    <dependency>\n      <version>1.0</version>\n      <artifactId>a").append(pom.length())
+                    .append("</artifactId>\n      <groupId>org.example</groupId>\n    </dependency>\n");
+        }
+        pom.append("  </dependencies>\n</project>\n");
+        PomDocument document = new PomDocument(pom.toString(), new Format("\n"), new TidyMetrics());
+        // idle workers of the pool steal the sections that the tidying thread forks
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.submit(() -> {
+                        new EnsureOrderAndIndent(OrderingRules.getDefault()).tidyPom(document);
+                        return null;
+                    })
+                    .get();
+        } finally {
+            pool.shutdown();
+        }
+        if (TidyMetrics.getAllocatedBytes() != -1) {
+            assertTrue(document.getWorkerAllocatedBytes() > 0);
+        }
+    }
+
+    @Test
+    void writesJson() throws IOException {
+        TidyMetrics metrics = new TidyMetrics();
+        metrics.recordPom();
+        metrics.recordTask("EnsureXmlHeader", 100, 0, 64);
+        metrics.recordScope("/project", 200, 10, -1);
+        StringWriter json = new StringWriter();
+        metrics.writeJson(json);
+        assertEquals(
+                "{\n"
+                        + "  \"poms\": 1,\n"
+                        + "  \"tasks\": [\n"
+                        + "    {\"name\": \"EnsureXmlHeader\", \"count\": 1, \"wallTimeNanos\": 100, \"events\": 0,"
+                        + " \"allocatedBytes\": 64}\n"
+                        + "  ],\n"
+                        + "  \"scopes\": [\n"
+                        + "    {\"name\": \"/project\", \"count\": 1, \"wallTimeNanos\": 200, \"events\": 10,"
+                        + " \"allocatedBytes\": -1}\n"
+                        + "  ]\n"
+                        + "}\n",
+                json.toString());
+    }
+
+    private List<String> getNames(List<Measurement> measurements) {
+        List<String> names = new ArrayList<>();
+        for (Measurement measurement : measurements) {
+            names.add(measurement.getName());
+        }
+        return names;
+    }
+
+    private String readPom(String test) throws IOException {
+        InputStream is = getClass().getResourceAsStream(test + "/pom.xml");
+        return IOUtil.toString(is);
+    }
+}
@@ -0,0 +1,99 @@
+package org.codehaus.mojo.tidy.task;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.codehaus.mojo.tidy.task.TidyResultCache.Key;
+import org.codehaus.mojo.tidy.task.TidyResultCache.Result;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TidyResultCacheTest {
+    @Test
+    void returnsResultOfSamePomAndConfiguration() {
+        TidyResultCache cache = new TidyResultCache(10000);
+        Result result = new Result(-1, null);
+        cache.put(TidyResultCache.createKey("a", "<project/>"), result);
+        assertSame(result, cache.get(TidyResultCache.createKey("a", "<project/>")));
+        assertNull(cache.get(TidyResultCache.createKey("b", "<project/>")));
+        assertNull(cache.get(TidyResultCache.createKey("a", "<project />")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedResults() {
+        TidyResultCache cache = new TidyResultCache(4000);
+        Key[] keys = new Key[5];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = TidyResultCache.createKey("a", "pom " + i);
+        }
+        for (int i = 0; i < 4; ++i) {
+            cache.put(keys[i], new Result(0, repeat('x', 400)));
+        }
+        cache.get(keys[0]);
+        cache.put(keys[4], new Result(0, repeat('x', 400)));
+        assertNotNull(cache.get(keys[0]));
+        assertNull(cache.get(keys[1]));
+        assertNotNull(cache.get(keys[2]));
+        assertNotNull(cache.get(keys[4]));
+    }
+
+    @Test
+    void storesLargeResultWithoutTidyPom() {
+        TidyResultCache cache = new TidyResultCache(1000);
+        Key key = TidyResultCache.createKey("a", "pom");
+        cache.put(key, new Result(5, repeat('x', 1000)));
+        assertEquals(5, cache.get(key).firstDifference);
+        assertNull(cache.get(key).tidyPom);
+    }
+
+    @Test
+    void isUsedByPomTidy() throws Exception {
+        TidyResultCache cache = new TidyResultCache(100000);
+        PomTidy pomTidy = new PomTidy(null, OrderingRules.getDefault(), cache);
+        String pom = "<project>\n<modelVersion>4.0.0</modelVersion>\n</project>\n";
+        String tidyPom = pomTidy.tidy(pom);
+        assertSame(tidyPom, pomTidy.tidy(pom));
+        assertEquals(1, pomTidy.findFirstDifference(pom));
+        assertEquals(-1, pomTidy.findFirstDifference(tidyPom));
+        assertSame(tidyPom, pomTidy.tidy(tidyPom));
+    }
+
+    @Test
+    void isNotUsedByDefault() throws Exception {
+        PomTidy pomTidy = new PomTidy();
+        String pom = "<project>\n<modelVersion>4.0.0</modelVersion>\n</project>\n";
+        String tidyPom = pomTidy.tidy(pom);
+        assertEquals(tidyPom, pomTidy.tidy(pom));
+        assertNotSame(tidyPom, pomTidy.tidy(pom));
+    }
+
+    private String repeat(char c, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            text.append(c);
+        }
+        return text.toString();
+    }
+}